@@ -0,0 +1,62 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ * - 웹 서버 없이 임베디드 H2(메모리)로 애플리케이션을 띄운다.
+ * - SQL 로그는 측정값을 왜곡하므로 끄고, 쿼리 수 측정을 위해 hibernate 통계를 켠다.
+ */
+final class BenchmarkApplication {
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String dbName, String... extraArgs) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--spring.datasource.url=jdbc:h2:mem:" + dbName + ";DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.properties.hibernate.generate_statistics=true",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.devtools.restart.enabled=false",
+                "--decorator.datasource.p6spy.enable-logging=false",
+                "--logging.level.root=warn",
+                "--logging.level.org.hibernate=warn",
+                "--logging.level.org.hibernate.SQL=off",
+                "--logging.level.org.hibernate.type=off"));
+        args.addAll(Arrays.asList(extraArgs));
+
+        return new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args.toArray(new String[0]));
+    }
+
+    /**
+     * bulk 프로파일로 띄워서 BulkDataGenerator가 데이터를 채운 상태로 시작한다.(jpashop.bulk.* 는 extraArgs로 조정)
+     */
+    static ConfigurableApplicationContext startWithBulkData(String dbName, String... extraArgs) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.profiles.active=bulk");
+        args.add("--jpashop.bulk.members=10000");
+        args.add("--jpashop.bulk.items=1000");
+        args.addAll(Arrays.asList(extraArgs));
+        return start(dbName, args.toArray(new String[0]));
+    }
+
+    static Statistics statistics(ConfigurableApplicationContext context) {
+        return context.getBean(EntityManagerFactory.class)
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+}
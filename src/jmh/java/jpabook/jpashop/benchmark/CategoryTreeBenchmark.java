@@ -0,0 +1,57 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.cache.CategoryTreeSnapshot;
+import jpabook.jpashop.repository.category.CategoryNodeDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 카테고리 트리 스냅샷(CategoryTreeSnapshot) 만드는 시간, DB 없이 루트 10개에 자식 10개씩 depth 단계로 만든다.
+ * - depth=4면 11만 1110개, 카테고리가 바뀔 때마다 백그라운드에서 이만큼 다시 만든다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class CategoryTreeBenchmark {
+
+    @Param({"3", "4"})
+    public int depth;
+
+    private List<CategoryNodeDto> nodes;
+
+    @Setup
+    public void setUp() {
+        nodes = new ArrayList<>();
+        List<Long> level = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < 10; i++, id++) {
+            nodes.add(new CategoryNodeDto(id, "c" + id, null));
+            level.add(id);
+        }
+        for (int d = 0; d < depth; d++) {
+            List<Long> children = new ArrayList<>();
+            for (Long parent : level) {
+                for (int i = 0; i < 10; i++, id++) {
+                    nodes.add(new CategoryNodeDto(id, "c" + id, parent));
+                    children.add(id);
+                }
+            }
+            level = children;
+        }
+    }
+
+    @Benchmark
+    public CategoryTreeSnapshot build() {
+        return CategoryTreeSnapshot.build(nodes, 1);
+    }
+}
@@ -0,0 +1,64 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.search.InvertedItemIndex;
+import jpabook.jpashop.search.ItemDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 상품 검색 색인(InvertedItemIndex) 검색 시간, DB 없이 BulkDataGenerator와 같은 모양의 상품 items개로 만든다.
+ * - 상품명은 book0, album1, movie2 ... / 저자, 아티스트, 감독은 1000명, 배우는 5000명을 돌려쓴다.
+ * - 검색어별로 후보 수가 다르다.(정확한 이름 1개, 사람 이름 약 수백 개, 넓은 접두어 book으로 거르기, 넓은 접두어만 있는 book1)
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ItemSearchBenchmark {
+
+    @Param({"1000000"})
+    public int items;
+
+    @Param({"book12345", "author123", "author12 book", "actor4", "book1"})
+    public String query;
+
+    private InvertedItemIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new InvertedItemIndex();
+        List<ItemDocument> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < items; i++) {
+            switch (i % 3) {
+                case 0:
+                    batch.add(new ItemDocument((long) i, "Book", "book" + i, 10000, new String[]{"author" + (i % 1_000)}, "isbn-" + i));
+                    break;
+                case 1:
+                    batch.add(new ItemDocument((long) i, "Album", "album" + i, 10000, new String[]{"artist" + (i % 1_000)}, null));
+                    break;
+                default:
+                    batch.add(new ItemDocument((long) i, "Movie", "movie" + i, 10000,
+                            new String[]{"director" + (i % 1_000), "actor" + (i % 5_000)}, null));
+            }
+            if (batch.size() == 10_000) {
+                index.putAll(batch);
+                batch.clear();
+            }
+        }
+        index.putAll(batch);
+    }
+
+    @Benchmark
+    public Object search() {
+        return index.search(query, 0, 20);
+    }
+}
@@ -0,0 +1,105 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.OrderService;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 쓰기 처리량
+ * - 한 트랜잭션에서 ordersPerTx 건을 OrderService.order로 주문한다.(주문 1건 = orders, order_item, delivery insert + 재고 update)
+ * - jdbcBatchSize=1 이면 JDBC batch를 끈 것과 같다. 100 과 비교해서 batch + pooled 시퀀스의 효과를 본다.
+ * - statements(연산당 JDBC 문장 수)에 시퀀스 조회도 포함된다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class OrderInsertBenchmark {
+
+    @Param({"1", "100"})
+    public int jdbcBatchSize;
+
+    @Param({"100"})
+    public int ordersPerTx;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate tx;
+    private OrderService orderService;
+    private Statistics statistics;
+    private Long memberId;
+    private Long itemId;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WriteCounters {
+        public long orders;
+        public long statements;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            orders = 0;
+            statements = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("order-insert-" + jdbcBatchSize,
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        orderService = context.getBean(OrderService.class);
+        statistics = BenchmarkApplication.statistics(context);
+
+        EntityManager em = context.getBean(EntityManager.class);
+        tx.executeWithoutResult(status -> {
+            Member member = new Member();
+            member.setName("bench-buyer");
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+
+            Book book = new Book();
+            book.setName("bench-book");
+            book.setPrice(10000);
+            book.setStockQuantity(Integer.MAX_VALUE);
+            em.persist(book);
+
+            memberId = member.getId();
+            itemId = book.getId();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void placeOrders(WriteCounters counters) {
+        long before = statistics.getPrepareStatementCount();
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < ordersPerTx; i++) {
+                orderService.order(memberId, itemId, 1);
+            }
+        });
+        counters.statements += statistics.getPrepareStatementCount() - before;
+        counters.orders += ordersPerTx;
+    }
+}
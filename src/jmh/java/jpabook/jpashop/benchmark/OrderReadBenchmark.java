@@ -0,0 +1,167 @@
+package jpabook.jpashop.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.api.OrderApiController;
+import jpabook.jpashop.api.OrderSimpleApiController;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 조회 전략(V1 ~ V6)별 end-to-end 비교
+ * - 컨트롤러 메서드 호출부터 JSON 직렬화까지를 한 번의 연산으로 본다.(OSIV 대신 읽기 전용 트랜잭션으로 감싼다)
+ * - 처리량(Throughput), 응답 시간 분포(SampleTime, p99), 연산당 SQL 수(sqlStatements / operations),
+ *   연산당 할당량(-prof gc 의 gc.alloc.rate.norm)을 같이 본다.
+ *
+ * 데이터는 bulk 프로파일의 BulkDataGenerator로 만든다.
+ * 조회 전략만 비교하도록 2차 캐시, 주문 조회 캐시(OrderQueryCache), 메서드 타이머(MethodTimingAspect)는 끄고 띄운다.
+ * (켜두면 두 번째 연산부터 캐시에서 읽어서 SQL 수와 시간이 전략과 상관없어진다)
+ * 참고: V1, V2는 findAllByString의 setMaxResults(1000) 때문에 최대 1000건만 조회한다. 비교할 땐 ordersRead로 나눠서 보자.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class OrderReadBenchmark {
+
+    @Param({"10000"}) // 100000, 1000000은 -PjmhOrders=10000,100000,1000000 으로
+    public int orders;
+
+    @Param({"1", "20"})
+    public int itemsPerOrder;
+
+    @Param
+    public Strategy strategy;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+    private ObjectMapper objectMapper;
+    private Statistics statistics;
+    private OrderApiController orderApi;
+    private OrderSimpleApiController simpleOrderApi;
+
+    public enum Strategy {
+        V1_ENTITY {
+            List<?> read(OrderReadBenchmark b) { return b.orderApi.ordersV1(); }
+        },
+        V2_LAZY_DTO {
+            List<?> read(OrderReadBenchmark b) { return b.orderApi.ordersV2(); }
+        },
+        V3_FETCH_JOIN {
+            List<?> read(OrderReadBenchmark b) { return b.orderApi.ordersV3(); }
+        },
+        V3_1_PAGED_BATCH_FETCH {
+            List<?> read(OrderReadBenchmark b) {
+                List<Object> orders = new ArrayList<>();
+                for (int offset = 0; ; offset += PAGE_SIZE) {
+                    List<?> page = b.orderApi.ordersV3_page(offset, PAGE_SIZE);
+                    if (page.isEmpty()) {
+                        return orders;
+                    }
+                    orders.addAll(page);
+                }
+            }
+        },
+        V4_DTO_1_N {
+            List<?> read(OrderReadBenchmark b) { return b.orderApi.ordersV4(); }
+        },
+        V5_DTO_1_1 {
+            List<?> read(OrderReadBenchmark b) { return b.orderApi.ordersV5(); }
+        },
+        V6_FLAT {
+            List<?> read(OrderReadBenchmark b) { return b.orderApi.ordersV6(); }
+        },
+        SIMPLE_V3_FETCH_JOIN {
+            List<?> read(OrderReadBenchmark b) { return b.simpleOrderApi.ordersV3(); }
+        },
+        SIMPLE_V4_DTO {
+            List<?> read(OrderReadBenchmark b) { return b.simpleOrderApi.ordersV4(); }
+        };
+
+        private static final int PAGE_SIZE = 100;
+
+        abstract List<?> read(OrderReadBenchmark b);
+    }
+
+    /**
+     * 반복(iteration)마다 합산되는 카운터, 연산당 값은 operations로 나눠서 본다.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class QueryCounters {
+        public long operations;
+        public long ordersRead;
+        public long sqlStatements;
+        public long responseBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            operations = 0;
+            ordersRead = 0;
+            sqlStatements = 0;
+            responseBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startWithBulkData("order-read-" + orders + "-" + itemsPerOrder,
+                "--jpashop.bulk.orders=" + orders,
+                "--jpashop.bulk.min-items-per-order=" + itemsPerOrder,
+                "--jpashop.bulk.max-items-per-order=" + itemsPerOrder,
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "--jpashop.order-query-cache.maximum-size=0",
+                "--jpashop.order-query-cache.ttl=0s",
+                "--jpashop.metrics.method-timing.enabled=false");
+
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        objectMapper = context.getBean(ObjectMapper.class);
+        statistics = BenchmarkApplication.statistics(context);
+        orderApi = context.getBean(OrderApiController.class);
+        simpleOrderApi = context.getBean(OrderSimpleApiController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] readOrders(QueryCounters counters) {
+        long before = statistics.getPrepareStatementCount();
+        byte[] body = readOnlyTx.execute(status -> {
+            List<?> result = strategy.read(this);
+            counters.ordersRead += result.size();
+            return toJson(result);
+        });
+        counters.sqlStatements += statistics.getPrepareStatementCount() - before;
+        counters.responseBytes += body.length;
+        counters.operations++;
+        return body;
+    }
+
+    private byte[] toJson(Object result) {
+        try {
+            return objectMapper.writeValueAsBytes(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package jpabook.jpashop.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 응답 포맷(JSON, Smile, CBOR)별 OrderQueryDto 직렬화 비교(/api/v5/orders 응답과 같은 모양)
+ * - DB 없이 메모리에 만든 주문 orders개를 한 번에 직렬화한다.
+ * - 연산당 시간, 연산당 바이트 수(payloadBytes / operations), 연산당 할당량(-prof gc)을 본다.
+ * - ObjectMapper는 애플리케이션과 같은 방식(Jackson2ObjectMapperBuilder + factory)으로 만든다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"10000"})
+    public int orders;
+
+    @Param({"2"})
+    public int itemsPerOrder;
+
+    @Param
+    public Format format;
+
+    private ObjectMapper objectMapper;
+    private List<OrderQueryDto> payload;
+
+    public enum Format {
+        JSON {
+            JsonFactory factory() { return new JsonFactory(); }
+        },
+        SMILE {
+            JsonFactory factory() { return new SmileFactory(); }
+        },
+        CBOR {
+            JsonFactory factory() { return new CBORFactory(); }
+        };
+
+        abstract JsonFactory factory();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SizeCounters {
+        public long operations;
+        public long payloadBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            operations = 0;
+            payloadBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new Jackson2ObjectMapperBuilder().factory(format.factory()).build();
+
+        payload = new ArrayList<>(orders);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < orders; i++) {
+            long orderId = i + 1;
+            List<OrderItemQueryDto> orderItems = new ArrayList<>(itemsPerOrder);
+            for (int j = 0; j < itemsPerOrder; j++) {
+                orderItems.add(new OrderItemQueryDto(orderId, "book" + (i * itemsPerOrder + j) % 1000, 10000 + j * 500, 1 + j));
+            }
+            payload.add(new OrderQueryDto(orderId, "member" + i % 10000, now.minusMinutes(i),
+                    i % 10 == 0 ? OrderStatus.CANCEL : OrderStatus.ORDER,
+                    new Address("서울", "street" + i % 10000, String.format("%05d", i % 100000)), orderItems));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize(SizeCounters counters) throws JsonProcessingException {
+        byte[] body = objectMapper.writeValueAsBytes(payload);
+        counters.payloadBytes += body.length;
+        counters.operations++;
+        return body;
+    }
+}
@@ -0,0 +1,82 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 상품에 주문이 몰릴 때의 처리량(StockConcurrencyTest는 초과 판매 여부만 검증한다)
+ * - 스레드마다 OrderService.order로 1개씩 주문한다.(주문 1건 = 트랜잭션 1개)
+ * - hot=false 면 상품 row의 조건부 update에서, hot=true 면 인메모리 카운터(HotStockReservations)에서 재고를 차감한다.
+ * - 스레드 8개가 동시에 주문한다.(@Threads)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+public class StockContentionBenchmark {
+
+    @Param({"false", "true"})
+    public boolean hot;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private Long memberId;
+    private Long itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("stock-contention-" + hot);
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        orderService = context.getBean(OrderService.class);
+
+        EntityManager em = context.getBean(EntityManager.class);
+        tx.executeWithoutResult(status -> {
+            Member member = new Member();
+            member.setName("bench-buyer");
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+
+            Book book = new Book();
+            book.setName("bench-book");
+            book.setPrice(10000);
+            book.setStockQuantity(Integer.MAX_VALUE);
+            em.persist(book);
+
+            memberId = member.getId();
+            itemId = book.getId();
+        });
+        if (hot) {
+            context.getBean(ItemService.class).changeHot(itemId, true);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long order() {
+        return orderService.order(memberId, itemId, 1);
+    }
+}
@@ -2,7 +2,10 @@ package jpabook.jpashop;
 
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.view.OrderViewProjector;
+import jpabook.jpashop.repository.sales.SalesAggregateRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,8 +22,11 @@ import javax.persistence.EntityManager;
  * - userB
  *  - SPRING1 BOOK
  *  - SPRING2 BOOK
+ *
+ * 대용량 데이터가 필요하면 bulk 프로파일로 실행한다.(BulkDataGenerator)
  */
 @Component
+@Profile("!bulk")
 @RequiredArgsConstructor
 public class InitDb {
     private final InitService initService;
@@ -36,6 +42,8 @@ public class InitDb {
     @RequiredArgsConstructor
     static class InitService{
         private final EntityManager em;
+        private final SalesAggregateRepository salesAggregateRepository;
+        private final OrderViewProjector orderViewProjector;
         public void dbInit1(){
             Member member = createMember("userA", "서울", "1", "1111");
             em.persist(member);
@@ -52,6 +60,8 @@ public class InitDb {
             Delivery delivery = createDelivery(member);
             Order order = Order.createOrder(member, delivery, orderItem1, orderItem2);
             em.persist(order);
+            salesAggregateRepository.recordOrder(order);
+            orderViewProjector.orderCreated(order);
         }
 
         private Book createBook(String name, int price, int stockQuantity) {
@@ -78,6 +88,8 @@ public class InitDb {
             Delivery delivery = createDelivery(member);
             Order order = Order.createOrder(member, delivery, orderItem1, orderItem2);
             em.persist(order);
+            salesAggregateRepository.recordOrder(order);
+            orderViewProjector.orderCreated(order);
         }
 
         private Delivery createDelivery(Member member) {
@@ -1,11 +1,18 @@
 package jpabook.jpashop;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication // 이클래스 하위의 클래스들을 컴포넌트 스캔해서 다 등록한다.
+@EnableScheduling // hot 상품 재고 반영(HotStockReservations.flush) 등 주기 작업
 public class JpashopApplication {
 
 	public static void main(String[] args) {
@@ -16,4 +23,19 @@ public class JpashopApplication {
 	Hibernate5Module hibernate5Module(){
 		return new Hibernate5Module();
 	}
+
+	/**
+	 * 서비스 간 호출용 바이너리 응답 포맷(CBOR, Smile), Accept 헤더로 선택하고 없으면 JSON이다.
+	 * 스프링 기본 변환기는 스프링 부트 설정(Hibernate5Module, 날짜 포맷 등)이 빠진 ObjectMapper를 쓰므로
+	 * 부트의 Jackson2ObjectMapperBuilder로 같은 설정의 ObjectMapper를 만들어 변환기를 교체한다.
+	 */
+	@Bean
+	MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder){
+		return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+	}
+
+	@Bean
+	MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder){
+		return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+	}
 }
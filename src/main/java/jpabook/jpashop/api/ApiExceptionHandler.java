@@ -0,0 +1,45 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.exception.SearchIndexNotReadyException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * API 컨트롤러 공통 예외 처리
+ * 요청 값 검증(limit 범위, 잘못된 커서, 모르는 필드 등)은 IllegalArgumentException으로 던지고 여기서 400으로 바꾼다.
+ * (처리하지 않으면 500으로 나가서 클라이언트 잘못인지 서버 장애인지 구분할 수 없다)
+ * 재고 부족은 409로, 주문 라인 하나라도 부족하면 주문 전체가 저장되지 않는다.
+ * 시작 직후 검색 색인을 만드는 동안의 검색은 503으로, 클라이언트가 잠시 뒤에 다시 시도하면 된다.
+ */
+@RestControllerAdvice(basePackages = "jpabook.jpashop.api")
+public class ApiExceptionHandler {
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ErrorResult illegalArgument(IllegalArgumentException e) {
+        return new ErrorResult(e.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(NotEnoughStockException.class)
+    public ErrorResult notEnoughStock(NotEnoughStockException e) {
+        return new ErrorResult(e.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(SearchIndexNotReadyException.class)
+    public ErrorResult searchIndexNotReady(SearchIndexNotReadyException e) {
+        return new ErrorResult(e.getMessage());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ErrorResult {
+        private String message;
+    }
+}
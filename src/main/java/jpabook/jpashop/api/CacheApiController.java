@@ -0,0 +1,31 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.cache.CacheRegionStats;
+import jpabook.jpashop.cache.CacheStatistics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class CacheApiController {
+    private final CacheStatistics cacheStatistics;
+
+    /**
+     * 2차 캐시 region별 hit/miss/eviction 수(누적값)
+     */
+    @GetMapping("/api/cache/stats")
+    public Result<List<CacheRegionStats>> cacheStats(){
+        return new Result<>(cacheStatistics.findAll());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Result<T>{
+        private T data;
+    }
+}
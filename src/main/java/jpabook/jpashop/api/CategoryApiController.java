@@ -0,0 +1,179 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.cache.CategoryTree;
+import jpabook.jpashop.cache.CategoryTreeSnapshot;
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.repository.category.CategoryItemDto;
+import jpabook.jpashop.repository.category.CategorySubtreeCounts;
+import jpabook.jpashop.service.CategoryService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequiredArgsConstructor
+public class CategoryApiController {
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_DEPTH = 100; // TreeNode.of가 재귀로 내려가므로 스택 깊이를 제한한다.
+
+    private final CategoryService categoryService;
+    private final CategoryTree categoryTree;
+
+    @GetMapping("/api/categories")
+    public Result<List<CategoryDto>> roots(){
+        List<CategoryDto> collect = categoryService.findRoots().stream()
+                .map(CategoryDto::new)
+                .collect(Collectors.toList());
+        return new Result<>(collect);
+    }
+
+    /**
+     * 카테고리 트리(네비게이션), DB를 조회하지 않고 메모리의 불변 스냅샷(CategoryTree)으로 만든다.
+     * - rootId가 있으면 그 카테고리 아래만, depth는 내려갈 단계 수(0 ~ MAX_DEPTH, 벗어나면 400)
+     * - 엔티티를 지연 로딩으로 따라가지 않으므로 트랜잭션, 영속성 컨텍스트가 필요 없다.
+     */
+    @GetMapping("/api/categories/tree")
+    public TreeResult tree(@RequestParam(value = "rootId", required = false) Long rootId,
+                           @RequestParam(value = "depth", defaultValue = "100") int depth){
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("0 <= depth <= " + MAX_DEPTH + " 이어야 합니다.");
+        }
+        CategoryTreeSnapshot tree = categoryTree.current(); // 요청 하나에서는 같은 스냅샷만 본다.
+        List<TreeNode> nodes = new ArrayList<>();
+        if (rootId == null) {
+            for (int i = 0; i < tree.rootCount(); i++) {
+                nodes.add(TreeNode.of(tree, i, depth));
+            }
+        } else {
+            int index = tree.indexOf(rootId);
+            if (index < 0) {
+                throw new IllegalArgumentException("존재하지 않는 카테고리입니다. categoryId=" + rootId);
+            }
+            nodes.add(TreeNode.of(tree, index, depth));
+        }
+        return new TreeResult(tree.getVersion(), nodes);
+    }
+
+    @PostMapping("/api/categories")
+    public CreateCategoryResponse createCategory(@RequestBody @Valid CreateCategoryRequest request){
+        Long id = categoryService.create(request.getName(), request.getParentId());
+        return new CreateCategoryResponse(id);
+    }
+
+    @PutMapping("/api/categories/{id}/parent")
+    public void moveCategory(@PathVariable("id") Long id, @RequestBody @Valid MoveCategoryRequest request){
+        categoryService.move(id, request.getParentId());
+    }
+
+    @PostMapping("/api/categories/{id}/items")
+    public void addItem(@PathVariable("id") Long id, @RequestBody @Valid AddItemRequest request){
+        categoryService.addItem(id, request.getItemId());
+    }
+
+    /**
+     * 하위 트리 전체(자기 자신 포함) 상품, 상품 id 순 페이징
+     * - 카테고리 깊이와 관계없이 쿼리 한 번(path 인덱스 범위 조회 + 상품 조회)
+     * - 단계마다 child를 지연 로딩하고 카테고리마다 items를 로딩하는 방식(N+1)을 대신한다.
+     */
+    @GetMapping("/api/categories/{id}/items")
+    public Result<List<CategoryItemDto>> subtreeItems(@PathVariable("id") Long id,
+                                                      @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                                      @RequestParam(value = "limit", defaultValue = "100") int limit){
+        if (offset < 0 || limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("offset >= 0, 1 <= limit <= " + MAX_LIMIT + " 이어야 합니다.");
+        }
+        return new Result<>(categoryService.findSubtreeItems(id, offset, limit));
+    }
+
+    /**
+     * 하위 카테고리 수, 하위 트리 전체 상품 수
+     */
+    @GetMapping("/api/categories/{id}/counts")
+    public CategorySubtreeCounts subtreeCounts(@PathVariable("id") Long id){
+        return categoryService.countSubtree(id);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Result<T>{
+        private T data;
+    }
+
+    @Data
+    static class CategoryDto{
+        private Long id;
+        private String name;
+        private String path;
+
+        CategoryDto(Category category) {
+            id = category.getId();
+            name = category.getName();
+            path = category.getPath();
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class TreeResult{
+        private long version; // 스냅샷 버전, 카테고리가 바뀔 때마다 올라간다.
+        private List<TreeNode> data;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class TreeNode{
+        private Long id;
+        private String name;
+        private List<TreeNode> children;
+
+        static TreeNode of(CategoryTreeSnapshot tree, int index, int depth) {
+            List<TreeNode> children = new ArrayList<>(depth > 0 ? tree.childCount(index) : 0);
+            if (depth > 0) {
+                int start = tree.childStart(index);
+                for (int c = start; c < start + tree.childCount(index); c++) {
+                    children.add(of(tree, c, depth - 1));
+                }
+            }
+            return new TreeNode(tree.id(index), tree.name(index), children);
+        }
+    }
+
+    @Data
+    static class CreateCategoryRequest{
+        @NotEmpty
+        private String name;
+        private Long parentId; // 없으면 루트
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateCategoryResponse{
+        private Long id;
+    }
+
+    @Data
+    static class MoveCategoryRequest{
+        @NotNull
+        private Long parentId;
+    }
+
+    @Data
+    static class AddItemRequest{
+        @NotNull
+        private Long itemId;
+    }
+}
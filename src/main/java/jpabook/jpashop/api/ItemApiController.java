@@ -0,0 +1,64 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.search.ItemSearchIndex;
+import jpabook.jpashop.search.ItemSearchResult;
+import jpabook.jpashop.service.ItemService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_SEARCH_WINDOW = 1000; // offset + limit, 뒤 페이지일수록 힙에 남길 후보가 많아진다.
+
+    private final ItemService itemService;
+    private final ItemSearchIndex itemSearchIndex;
+
+    /**
+     * 상품 검색(이름, 저자, 아티스트, 감독, 배우, ISBN)
+     * - DB를 조회하지 않고 메모리의 역색인(ItemSearchIndex)에서 점수 순으로 찾는다.
+     * - 검색어의 모든 단어가 들어있는 상품만, 단어는 앞부분만 입력해도 찾는다.(두 글자 이상)
+     * - ex) /api/items/search?q=김영한 jpa&offset=0&limit=20
+     */
+    @GetMapping("/api/items/search")
+    public ItemSearchResult searchItems(@RequestParam(value = "q") String query,
+                                        @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                        @RequestParam(value = "limit", defaultValue = "20") int limit){
+        if (offset < 0 || limit < 1 || limit > MAX_SEARCH_LIMIT || offset + limit > MAX_SEARCH_WINDOW) {
+            throw new IllegalArgumentException("offset >= 0, 1 <= limit <= " + MAX_SEARCH_LIMIT
+                    + ", offset + limit <= " + MAX_SEARCH_WINDOW + " 이어야 합니다.");
+        }
+        return itemSearchIndex.search(query, offset, limit);
+    }
+
+    /**
+     * hot 상품 지정/해제
+     * - hot 상품은 재고를 메모리에서 차감한다.(HotStockReservations)
+     * - 지정하는 순간 DB 재고로 인메모리 재고를 맞추므로 세일 시작 전에 지정하자.
+     */
+    @PutMapping("/api/v1/items/{id}/hot")
+    public UpdateHotResponse updateHotV1(@PathVariable("id") Long id, @RequestBody UpdateHotRequest request){
+        itemService.changeHot(id, request.isHot());
+        return new UpdateHotResponse(id, request.isHot());
+    }
+
+    @Data
+    static class UpdateHotRequest{
+        private boolean hot;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class UpdateHotResponse{
+        private Long id;
+        private boolean hot;
+    }
+}
@@ -0,0 +1,32 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.metrics.MethodLatencyStats;
+import jpabook.jpashop.metrics.MethodMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class MetricsApiController {
+    private final MethodMetrics methodMetrics;
+
+    /**
+     * 컨트롤러/서비스/리포지토리 메서드별 호출 수, 에러율, p50/p95/p99(p99 느린 순)
+     * 원본 Timer는 /actuator/metrics/jpashop.method 에서도 볼 수 있다.
+     */
+    @GetMapping("/api/metrics/methods")
+    public Result<List<MethodLatencyStats>> methodMetrics(){
+        return new Result<>(methodMetrics.findAll());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Result<T>{
+        private T data;
+    }
+}
@@ -1,33 +1,61 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderFieldsQueryRepository;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.query.OrderViewQueryRepository;
+import jpabook.jpashop.service.OrderLine;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.OrderSheet;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.apache.tomcat.jni.OS;
 import org.springframework.data.domain.jaxb.SpringDataJaxb;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
 public class OrderApiController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int EXPORT_FLUSH_INTERVAL = 100;
+    private static final int MAX_LIMIT = 1000;
+
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderFieldsQueryRepository orderFieldsQueryRepository;
+    private final OrderViewQueryRepository orderViewQueryRepository;
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
 
 
     /**
@@ -88,12 +116,44 @@ public class OrderApiController {
     @GetMapping("/api/v3.1/orders")
     public List<OrderDto> ordersV3_page(@RequestParam(value = "offset", defaultValue = "0") int offset,
                                         @RequestParam(value = "limit", defaultValue = "100") int limit){
+        checkPage(offset, limit);
         List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
         return orders.stream()
                 .map(o -> new OrderDto(o))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * V3.2 엔티티를 조회해서 DTO로 변환, 키셋(커서) 페이징
+     * - V3.1과 같은 방식(ToOne 페치 조인 + 컬렉션 batch fetch)이지만 offset 대신 마지막 order id 이후를 조회한다.
+     * - 응답의 next 값을 다음 요청의 after 파라미터로 그대로 넘기면 된다. (더 이상 데이터가 없으면 null)
+     * - 페이지가 아무리 깊어도 pk 인덱스 범위 조회라 응답 속도가 일정하다.
+     */
+    @GetMapping("/api/v3.2/orders")
+    public CursorResult<List<OrderDto>> ordersV3_cursor(@RequestParam(value = "after", required = false) String after,
+                                                        @RequestParam(value = "limit", defaultValue = "100") int limit){
+        checkPage(0, limit);
+        // 다음 페이지가 있는지 알기 위해 하나 더 조회한다.
+        List<Order> orders = orderRepository.findAllWithMemberDeliveryAfter(OrderCursor.decode(after), limit + 1);
+        boolean hasNext = orders.size() > limit;
+        if (hasNext) {
+            orders = orders.subList(0, limit);
+        }
+
+        List<OrderDto> collect = orders.stream()
+                .map(o -> new OrderDto(o))
+                .collect(Collectors.toList());
+        String next = hasNext ? OrderCursor.encode(orders.get(orders.size() - 1).getId()) : null;
+        return new CursorResult<>(collect, next);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CursorResult<T>{
+        private T data;
+        private String next; // 다음 페이지 조회용 커서
+    }
+
     /**
      * V4. JPA에서 DTO로 바로 조회, 컬렉션 N 조회 ( 1+N Query )
      * - 페이징 가능
@@ -111,6 +171,36 @@ public class OrderApiController {
     public List<OrderQueryDto> ordersV5(){
         return orderQueryRepository.findAllByDto_optimization();
     }
+
+    /**
+     * V7. 요청한 필드만 조회(sparse fieldsets)
+     * - fields: orderId, name, orderDate, orderStatus, address, totalPrice, orderItems(.itemName, .orderPrice, .count)
+     * - ex) /api/v7/orders?fields=orderId,orderStatus,totalPrice -> orders 테이블만 조회(member, delivery 조인 X)
+     * - fields가 없으면 전체 필드, orderItems.* 가 있으면 V5처럼 주문상품 IN 쿼리 1번 추가
+     */
+    @GetMapping("/api/v7/orders")
+    public Result<List<Map<String, Object>>> ordersV7(@RequestParam(value = "fields", required = false) String fields,
+                                                      @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                                      @RequestParam(value = "limit", defaultValue = "100") int limit){
+        checkPage(offset, limit);
+        return new Result<>(orderFieldsQueryRepository.findOrders(fields, offset, limit));
+    }
+
+    /**
+     * 페이지 크기 검증, 잘못된 값은 400(ApiExceptionHandler)
+     * limit 0이면 마지막 원소를 찾다가, 음수면 setMaxResults에서 터지므로 쿼리 전에 막는다.
+     */
+    private static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("offset >= 0, 1 <= limit <= " + MAX_LIMIT + " 이어야 합니다.");
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Result<T>{
+        private T data;
+    }
     @Getter
     static class OrderDto {
         private Long orderId;
@@ -137,24 +227,148 @@ public class OrderApiController {
 
     /**
      * V6. JPA에서 DTO로 바로 조회, 플랫 데이터 ( 1 Query )
-     * - Order 기준으로 페이징이 불가능( Order 입장에선 OrderItems도 조회하면서 데이터가 중복되기 때문 )
+     * - Order 기준으로 페이징이 불가능( Order 입장에선 OrderItems도 조회하면서 데이터가 중복되기 때문 ) -> V6.1 키셋 페이징
      * - 쿼리는 한 번이지만 조인으로 인해 DB에서 애플리케이션에 전달하는 데이터에 중복 데이터가 추가되므로 상황에 따라 V5보다 더 느릴 수 있다.
      * - 애플리케이션에서 추가 작업이 크다.
+     *  -> 처음에는 FlatDto를 groupingBy로 묶었는데(row마다 키 DTO 생성, 해시, 순서 유실)
+     *     order id로 정렬해서 조회하고 한 번 훑으면서 합치도록 바꿨다.(주문당 DTO 하나, order id 순서 유지)
      */
     @GetMapping("/api/v6/orders")
     public List<OrderQueryDto> ordersV6(){
-        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
-
-        // FlatDto를 QuerDto로 변환하는 과정
-        return flats.stream()
-                .collect(Collectors.groupingBy(o -> new OrderQueryDto(o.getOrderId(),
-                                o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        Collectors.mapping(o -> new OrderItemQueryDto(o.getOrderId(),
-                                o.getItemName(), o.getOrderPrice(), o.getCount()), Collectors.toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(),
-                        e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(),e.getKey().getAddress(), e.getValue()))
+        List<OrderQueryDto> orders = new ArrayList<>();
+        orderQueryRepository.streamAllByDto_flat(orders::add);
+        return orders;
+    }
+
+    /**
+     * V6.1 플랫 데이터 ( 1 Query ) + order id 키셋 페이징
+     * - after(커서) 이후 주문을 limit 개까지, 응답의 next를 다음 요청의 after로 넘긴다.(V3.2와 같은 커서)
+     * - 주문 id를 limit + 1 개만 먼저 읽고(다음 페이지 여부 확인용) 그 범위의 플랫 row만 조인한다.(쿼리 2번)
+     */
+    @GetMapping("/api/v6.1/orders")
+    public CursorResult<List<OrderQueryDto>> ordersV6_cursor(@RequestParam(value = "after", required = false) String after,
+                                                             @RequestParam(value = "limit", defaultValue = "100") int limit){
+        checkPage(0, limit);
+        List<OrderQueryDto> orders = orderQueryRepository.findAllByDto_flat(OrderCursor.decode(after), limit + 1);
+        boolean hasNext = orders.size() > limit;
+        if (hasNext) {
+            orders = orders.subList(0, limit);
+        }
+        String next = hasNext ? OrderCursor.encode(orders.get(orders.size() - 1).getOrderId()) : null;
+        return new CursorResult<>(orders, next);
+    }
+
+    /**
+     * V8. 비정규화 테이블(order_view) 조회 ( 주문 id 1번 + row 1번, 조인 X ) + order id 키셋 페이징
+     * - 주문/취소/이름 변경 트랜잭션에서 같이 갱신해둔 order_view만 읽는다.(OrderViewProjector)
+     * - 조인할 테이블이 늘어나도 조회 비용은 그대로, 대신 쓰기 때 order_view 갱신 비용이 든다.
+     * - 응답 모양, 커서는 V6.1과 같다.
+     */
+    @GetMapping("/api/v8/orders")
+    public CursorResult<List<OrderQueryDto>> ordersV8(@RequestParam(value = "after", required = false) String after,
+                                                      @RequestParam(value = "limit", defaultValue = "100") int limit){
+        checkPage(0, limit);
+        List<OrderQueryDto> orders = orderViewQueryRepository.findOrders(OrderCursor.decode(after), limit + 1);
+        boolean hasNext = orders.size() > limit;
+        if (hasNext) {
+            orders = orders.subList(0, limit);
+        }
+        String next = hasNext ? OrderCursor.encode(orders.get(orders.size() - 1).getOrderId()) : null;
+        return new CursorResult<>(orders, next);
+    }
+
+    /**
+     * V6 export. 전체 주문을 NDJSON(한 줄에 주문 하나)으로 스트리밍한다.
+     * - 결과를 List로 모아서 groupingBy 하지 않고, order id 순으로 정렬된 플랫 row를 읽으면서 주문 단위로 바로 응답에 쓴다.
+     * - 주문 수가 아무리 많아도 메모리에는 현재 주문 하나와 fetch size 만큼의 row만 올라간다.
+     */
+    @GetMapping(value = "/api/v6/orders/export", produces = NDJSON)
+    public void exportOrdersV6(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        // writeValue는 기본값(FLUSH_AFTER_WRITE_VALUE)으로 주문마다 flush해서 주문 하나가 소켓 write, gzip flush 한 번이 된다.
+        // 끄고 EXPORT_FLUSH_INTERVAL 건마다 직접 flush한다.
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null); // 주문 사이 구분자는 아래에서 직접 개행으로 쓴다.
+            int[] written = {0};
+            orderQueryRepository.streamAllByDto_flat(order -> {
+                try {
+                    writer.writeValue(generator, order);
+                    generator.writeRaw('\n');
+                    if (++written[0] % EXPORT_FLUSH_INTERVAL == 0) {
+                        generator.flush(); // 클라이언트가 받는 대로 처리할 수 있도록 주기적으로 내보낸다.
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 주문 등록(여러 상품)
+     * - 한 주문에 여러 주문 라인을 받는다. 재고가 부족한 라인이 하나라도 있으면 주문 전체가 실패한다.
+     */
+    @PostMapping("/api/v1/orders")
+    public CreateOrderResponse saveOrderV1(@RequestBody @Valid CreateOrderRequest request){
+        Long orderId = orderService.order(request.getMemberId(), request.toOrderLines());
+        return new CreateOrderResponse(orderId);
+    }
+
+    /**
+     * 대량 주문 등록
+     * - 주문 여러 건을 한 트랜잭션에서 처리한다.(상품/회원 조회 1번씩, 재고 검증은 메모리에서, insert는 batch로)
+     */
+    @PostMapping("/api/v1/orders/bulk")
+    public CreateOrdersResponse saveOrdersV1(@RequestBody @Valid CreateOrdersRequest request){
+        List<OrderSheet> sheets = request.getOrders().stream()
+                .map(o -> new OrderSheet(o.getMemberId(), o.toOrderLines()))
                 .collect(Collectors.toList());
+        return new CreateOrdersResponse(orderService.orders(sheets));
+    }
+
+    @Data
+    static class CreateOrderRequest{
+        @NotNull
+        private Long memberId;
+        @NotEmpty
+        @Valid
+        private List<OrderLineRequest> lines;
+
+        List<OrderLine> toOrderLines(){
+            return lines.stream()
+                    .map(l -> new OrderLine(l.getItemId(), l.getCount()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Data
+    static class OrderLineRequest{
+        @NotNull
+        private Long itemId;
+        @Positive
+        private int count;
+    }
+
+    @Data
+    static class CreateOrdersRequest{
+        @NotEmpty
+        @Valid
+        private List<CreateOrderRequest> orders;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateOrderResponse{
+        private Long orderId;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateOrdersResponse{
+        private List<Long> orderIds;
     }
 
     @Getter
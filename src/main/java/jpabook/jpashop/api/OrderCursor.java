@@ -0,0 +1,40 @@
+package jpabook.jpashop.api;
+
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 키셋 페이징용 커서
+ * 클라이언트가 커서 내부 구조(order id)에 의존하지 않도록 불투명한 문자열로 인코딩해서 내려준다.
+ */
+final class OrderCursor {
+    private static final String PREFIX = "order:";
+
+    private OrderCursor() {
+    }
+
+    static String encode(Long orderId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + orderId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 커서가 없으면 첫 페이지(null)
+     */
+    static Long decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("잘못된 커서입니다.");
+            }
+            return Long.valueOf(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) { // NumberFormatException도 여기서 처리된다.
+            throw new IllegalArgumentException("잘못된 커서입니다.", e);
+        }
+    }
+}
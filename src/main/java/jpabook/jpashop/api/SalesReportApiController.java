@@ -0,0 +1,48 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.sales.ItemDailySalesDto;
+import jpabook.jpashop.repository.sales.OrderStatusCountDto;
+import jpabook.jpashop.service.SalesReportService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class SalesReportApiController {
+    private final SalesReportService salesReportService;
+
+    /**
+     * 상품별 일 매출(취소된 주문 제외)
+     * ex) /api/reports/items/daily?from=2022-06-01&to=2022-06-30&itemId=1
+     */
+    @GetMapping("/api/reports/items/daily")
+    public Result<List<ItemDailySalesDto>> itemDailySales(
+            @RequestParam(value = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "itemId", required = false) Long itemId){
+        return new Result<>(salesReportService.findItemDailySales(from, to, itemId));
+    }
+
+    /**
+     * 주문 상태별 주문 수
+     * (집계 재생성은 인증 없는 API로 열지 않는다. 시작할 때 SalesAggregateRebuildRunner로 돌린다)
+     */
+    @GetMapping("/api/reports/orders/status")
+    public Result<List<OrderStatusCountDto>> orderStatusCounts(){
+        return new Result<>(salesReportService.findOrderStatusCounts());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Result<T>{
+        private T data;
+    }
+}
@@ -0,0 +1,222 @@
+package jpabook.jpashop.bulk;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 부하 테스트용 대용량 데이터 생성기 (bulk 프로파일에서만 동작, 이때 InitDb는 동작하지 않는다)
+ * - 회원 N명, 상품(Book/Album/Movie) M개, 카테고리 트리, 주문 K건을 만든다.
+ * - 상품 인기도와 회원별 주문 수는 Zipf 분포를 따른다.(소수의 인기 상품, 주문이 많은 소수의 회원)
+ *
+ * InitDb처럼 em.persist로 한 건씩 넣으면 수백만 건에 몇 시간이 걸리므로
+ * 영속성 컨텍스트를 거치지 않고 JDBC batch insert로 batchSize 단위로 끊어서 넣는다.
+ * id는 엔티티별 시퀀스에서 시작 값을 하나씩 받아 직접 매기고, 끝나면 각 시퀀스를 그 뒤로 옮겨둔다.
+ *
+ * ex) java -jar jpashop.jar --spring.profiles.active=bulk --jpashop.bulk.orders=5000000
+ */
+@Slf4j
+@Component
+@Profile("bulk")
+@Order(Ordered.HIGHEST_PRECEDENCE) // 데이터를 만든 뒤에 다른 runner(SalesAggregateRebuildRunner)가 돈다.
+@RequiredArgsConstructor
+public class BulkDataGenerator implements ApplicationRunner {
+    private static final String[] CITIES = {"서울", "부산", "대구", "인천", "광주", "대전", "울산", "수원"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BulkDataProperties properties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        generate();
+    }
+
+    public void generate() {
+        long start = System.currentTimeMillis();
+        Random random = new Random(properties.getSeed());
+        IdSequence memberIds = sequence("member_seq");
+        IdSequence itemIds = sequence("item_seq");
+        IdSequence categoryIds = sequence("category_seq");
+        IdSequence deliveryIds = sequence("delivery_seq");
+        IdSequence orderIds = sequence("order_seq");
+        IdSequence orderItemIds = sequence("order_item_seq");
+
+        long memberBase = insertMembers(memberIds);
+        int[] itemPrices = new int[properties.getItems()];
+        long itemBase = insertItems(random, itemIds, itemPrices);
+        insertCategories(random, categoryIds, itemBase);
+        insertOrders(random, deliveryIds, orderIds, orderItemIds, memberBase, itemBase, itemPrices);
+
+        for (IdSequence ids : Arrays.asList(memberIds, itemIds, categoryIds, deliveryIds, orderIds, orderItemIds)) {
+            ids.restart();
+        }
+        log.info("bulk data generated: members={}, items={}, orders={}, {}ms",
+                properties.getMembers(), properties.getItems(), properties.getOrders(), System.currentTimeMillis() - start);
+    }
+
+    private long insertMembers(IdSequence memberIds) {
+        long base = memberIds.reserve(properties.getMembers());
+        JdbcBatchInserter members = inserter("insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)");
+        for (int i = 0; i < properties.getMembers(); i++) {
+            members.add(base + i, "member" + i, CITIES[i % CITIES.length], "street" + i, String.format("%05d", i % 100_000));
+        }
+        members.flush();
+        return base;
+    }
+
+    private long insertItems(Random random, IdSequence itemIds, int[] itemPrices) {
+        long base = itemIds.reserve(properties.getItems());
+        JdbcBatchInserter items = inserter("insert into item (dtype, item_id, name, price, stock_quantity, hot," +
+                " author, isbn, artist, etc, director, actor) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        for (int i = 0; i < properties.getItems(); i++) {
+            int price = (1 + random.nextInt(100)) * 500;
+            itemPrices[i] = price;
+            int stock = 1_000 + random.nextInt(100_000);
+            switch (i % 3) {
+                case 0:
+                    items.add("B", base + i, "book" + i, price, stock, false, "author" + (i % 1_000), "isbn-" + i, null, null, null, null);
+                    break;
+                case 1:
+                    items.add("A", base + i, "album" + i, price, stock, false, null, null, "artist" + (i % 1_000), null, null, null);
+                    break;
+                default:
+                    items.add("M", base + i, "movie" + i, price, stock, false, null, null, null, null, "director" + (i % 1_000), "actor" + (i % 5_000));
+            }
+        }
+        items.flush();
+        return base;
+    }
+
+    /**
+     * 너비 우선으로 카테고리 트리를 만들고, 상품은 말단 카테고리 하나에 연결한다.
+     */
+    private void insertCategories(Random random, IdSequence categoryIds, long itemBase) {
+        JdbcBatchInserter categories = inserter("insert into category (category_id, name, parent_id, path) values (?, ?, ?, ?)");
+        List<Long> level = new ArrayList<>();
+        List<String> levelPaths = new ArrayList<>(); // level과 같은 순서, 각 카테고리의 path(Category.path)
+        for (int i = 0; i < properties.getRootCategories(); i++) {
+            long id = categoryIds.reserve(1);
+            String path = "/" + id + "/";
+            categories.add(id, "category" + id, null, path);
+            level.add(id);
+            levelPaths.add(path);
+        }
+        for (int depth = 1; depth < properties.getCategoryDepth(); depth++) {
+            List<Long> children = new ArrayList<>();
+            List<String> childPaths = new ArrayList<>();
+            for (int p = 0; p < level.size(); p++) {
+                Long parentId = level.get(p);
+                for (int i = 0; i < properties.getChildrenPerCategory(); i++) {
+                    long id = categoryIds.reserve(1);
+                    String path = levelPaths.get(p) + id + "/";
+                    categories.add(id, "category" + id, parentId, path);
+                    children.add(id);
+                    childPaths.add(path);
+                }
+            }
+            level = children;
+            levelPaths = childPaths;
+        }
+        categories.flush();
+
+        if (level.isEmpty()) {
+            return;
+        }
+        JdbcBatchInserter categoryItems = inserter("insert into category_item (category_id, item_id) values (?, ?)");
+        for (int i = 0; i < properties.getItems(); i++) {
+            categoryItems.add(level.get(random.nextInt(level.size())), itemBase + i);
+        }
+        categoryItems.flush();
+    }
+
+    private void insertOrders(Random random, IdSequence deliveryIds, IdSequence orderIds, IdSequence orderItemIds,
+                              long memberBase, long itemBase, int[] itemPrices) {
+        ZipfDistribution memberDistribution = new ZipfDistribution(properties.getMembers(), properties.getMemberSkew());
+        ZipfDistribution itemDistribution = new ZipfDistribution(properties.getItems(), properties.getItemSkew());
+
+        JdbcBatchInserter deliveries = inserter("insert into delivery (delivery_id, city, street, zipcode, status) values (?, ?, ?, ?, ?)");
+        JdbcBatchInserter orders = inserter("insert into orders (order_id, member_id, delivery_id, order_date, status) values (?, ?, ?, ?, ?)");
+        // order_item은 FK로 orders를 참조하므로 주문보다 먼저 flush되지 않도록 주문 batchSize 단위로 같이 flush한다.
+        JdbcBatchInserter orderItems = new JdbcBatchInserter(jdbcTemplate,
+                "insert into order_item (order_item_id, order_id, item_id, order_price, count) values (?, ?, ?, ?, ?)",
+                properties.getBatchSize() * Math.max(1, properties.getMaxItemsPerOrder()));
+
+        int lineSpread = properties.getMaxItemsPerOrder() - properties.getMinItemsPerOrder() + 1;
+        LocalDateTime from = LocalDateTime.now().minusDays(365);
+        long secondsPerOrder = Math.max(1, 365L * 24 * 60 * 60 / Math.max(1, properties.getOrders()));
+
+        for (int i = 0; i < properties.getOrders(); i++) {
+            int member = memberDistribution.sample(random);
+            LocalDateTime orderDate = from.plusSeconds(secondsPerOrder * i);
+            boolean canceled = random.nextDouble() < properties.getCancelRatio();
+            boolean delivered = !canceled && orderDate.isBefore(LocalDateTime.now().minusDays(7));
+
+            long deliveryId = deliveryIds.reserve(1);
+            deliveries.add(deliveryId, CITIES[member % CITIES.length], "street" + member, String.format("%05d", member % 100_000),
+                    delivered ? "COMP" : "READY");
+
+            long orderId = orderIds.reserve(1);
+            orders.add(orderId, memberBase + member, deliveryId, Timestamp.valueOf(orderDate), canceled ? "CANCEL" : "ORDER");
+
+            int lines = properties.getMinItemsPerOrder() + random.nextInt(Math.max(1, lineSpread));
+            for (int j = 0; j < lines; j++) {
+                int item = itemDistribution.sample(random);
+                orderItems.add(orderItemIds.reserve(1), orderId, itemBase + item, itemPrices[item], 1 + random.nextInt(3));
+            }
+
+            if ((i + 1) % properties.getBatchSize() == 0) {
+                deliveries.flush();
+                orders.flush();
+                orderItems.flush();
+            }
+        }
+        deliveries.flush();
+        orders.flush();
+        orderItems.flush();
+    }
+
+    private IdSequence sequence(String name) {
+        return new IdSequence(name, jdbcTemplate.queryForObject("select next value for " + name, Long.class));
+    }
+
+    private JdbcBatchInserter inserter(String sql) {
+        return new JdbcBatchInserter(jdbcTemplate, sql, properties.getBatchSize());
+    }
+
+    /**
+     * 시퀀스에서 받은 시작 값부터 id를 직접 매긴다.
+     * pooled-lo 방식이라 시퀀스 값이 다음 id 블록의 시작이므로, 끝나면 사용한 id 다음 값으로 시퀀스를 옮겨두면 된다.
+     */
+    private class IdSequence {
+        private final String name;
+        private long next;
+
+        IdSequence(String name, long start) {
+            this.name = name;
+            this.next = start;
+        }
+
+        long reserve(int count) {
+            long base = next;
+            next += count;
+            return base;
+        }
+
+        void restart() {
+            jdbcTemplate.execute("alter sequence " + name + " restart with " + next);
+        }
+    }
+}
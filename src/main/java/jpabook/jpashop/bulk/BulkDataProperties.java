@@ -0,0 +1,36 @@
+package jpabook.jpashop.bulk;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * 대용량 테스트 데이터 생성 설정(jpashop.bulk.*)
+ */
+@Component
+@Profile("bulk")
+@ConfigurationProperties(prefix = "jpashop.bulk")
+@Getter
+@Setter
+public class BulkDataProperties {
+    private int members = 100_000;
+    private int items = 10_000; // Book, Album, Movie를 1:1:1로 나눠서 만든다.
+    private int orders = 1_000_000;
+    private int minItemsPerOrder = 1;
+    private int maxItemsPerOrder = 5;
+
+    // 카테고리 트리: 최상위 roots개, 각 카테고리마다 자식 childrenPerCategory개, depth 단계
+    private int rootCategories = 10;
+    private int childrenPerCategory = 5;
+    private int categoryDepth = 3;
+
+    // Zipf 분포 지수, 클수록 소수의 인기 상품/헤비 회원에게 주문이 몰린다.
+    private double itemSkew = 1.1;
+    private double memberSkew = 0.8;
+
+    private double cancelRatio = 0.05;
+    private int batchSize = 1_000;
+    private long seed = 42L;
+}
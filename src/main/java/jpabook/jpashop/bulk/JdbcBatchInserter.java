@@ -0,0 +1,41 @@
+package jpabook.jpashop.bulk;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * batchSize 만큼 모아서 JDBC batch로 insert 한다.
+ * 한 번에 메모리에 올라가는 row는 batchSize개뿐이다.
+ */
+class JdbcBatchInserter {
+    private final JdbcTemplate jdbcTemplate;
+    private final String sql;
+    private final int batchSize;
+    private final List<Object[]> rows;
+    private long inserted;
+
+    JdbcBatchInserter(JdbcTemplate jdbcTemplate, String sql, int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sql = sql;
+        this.batchSize = batchSize;
+        this.rows = new ArrayList<>(batchSize);
+    }
+
+    void add(Object... row) {
+        rows.add(row);
+        if (rows.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    long flush() {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+            inserted += rows.size();
+            rows.clear();
+        }
+        return inserted;
+    }
+}
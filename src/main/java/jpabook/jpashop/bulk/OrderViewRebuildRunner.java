@@ -0,0 +1,29 @@
+package jpabook.jpashop.bulk;
+
+import jpabook.jpashop.service.OrderViewService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 시작할 때 주문 읽기 모델(order_view)을 원본 테이블로 다시 만든다.
+ * BulkDataGenerator는 jdbc로 주문을 직접 넣어 order_view가 채워지지 않으므로 bulk 프로파일에서는 데이터 생성 뒤에 돌린다.
+ *
+ * ex) java -jar jpashop.jar --jpashop.order-view.rebuild=true
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(name = "jpashop.order-view.rebuild", havingValue = "true")
+@RequiredArgsConstructor
+public class OrderViewRebuildRunner implements ApplicationRunner {
+    private final OrderViewService orderViewService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        orderViewService.rebuild();
+    }
+}
@@ -0,0 +1,29 @@
+package jpabook.jpashop.bulk;
+
+import jpabook.jpashop.service.SalesReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 시작할 때 매출 집계 테이블을 주문 원본으로 다시 만든다.(백필)
+ * BulkDataGenerator는 jdbc로 주문을 직접 넣어 집계가 갱신되지 않으므로 bulk 프로파일에서는 데이터 생성 뒤에 돌린다.
+ *
+ * ex) java -jar jpashop.jar --jpashop.sales-aggregate.rebuild=true
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(name = "jpashop.sales-aggregate.rebuild", havingValue = "true")
+@RequiredArgsConstructor
+public class SalesAggregateRebuildRunner implements ApplicationRunner {
+    private final SalesReportService salesReportService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        salesReportService.rebuild();
+    }
+}
@@ -0,0 +1,33 @@
+package jpabook.jpashop.bulk;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Zipf 분포 샘플러
+ * rank k(0부터)가 뽑힐 확률이 1 / (k+1)^skew 에 비례한다. 누적 분포를 미리 계산해두고 이진 탐색으로 뽑는다.
+ */
+class ZipfDistribution {
+    private final double[] cumulative;
+
+    ZipfDistribution(int size, double skew) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size는 1 이상이어야 합니다.");
+        }
+        cumulative = new double[size];
+        double sum = 0;
+        for (int k = 0; k < size; k++) {
+            sum += 1.0 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < size; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,16 @@
+package jpabook.jpashop.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CacheRegionStats {
+    private String region;
+    private long hits;
+    private long misses;
+    private long puts;
+    private long evictions; // 크기 제한, TTL로 밀려난 수
+    private long removals; // 무효화(수정, 벌크 update)로 지워진 수
+    private float hitPercentage;
+}
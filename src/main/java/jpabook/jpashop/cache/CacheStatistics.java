@@ -0,0 +1,48 @@
+package jpabook.jpashop.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 2차 캐시 region별 통계
+ * JCache 표준 통계 MXBean(javax.cache:type=CacheStatistics)을 읽는다.(application.conf의 monitoring.statistics = true)
+ * 주문 조회 결과 캐시(OrderQueryCache)도 같은 형식으로 같이 내려준다.
+ * 값은 애플리케이션 시작 이후 누적값이라 수집기에서 주기적으로 긁어가서 차이를 보면 된다.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheStatistics {
+    private static final String STATISTICS_PATTERN = "javax.cache:type=CacheStatistics,*";
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private final OrderQueryCache orderQueryCache;
+
+    public List<CacheRegionStats> findAll() {
+        List<CacheRegionStats> result = new ArrayList<>();
+        try {
+            for (ObjectName name : mBeanServer.queryNames(new ObjectName(STATISTICS_PATTERN), null)) {
+                result.add(new CacheRegionStats(
+                        name.getKeyProperty("Cache"),
+                        (Long) mBeanServer.getAttribute(name, "CacheHits"),
+                        (Long) mBeanServer.getAttribute(name, "CacheMisses"),
+                        (Long) mBeanServer.getAttribute(name, "CachePuts"),
+                        (Long) mBeanServer.getAttribute(name, "CacheEvictions"),
+                        (Long) mBeanServer.getAttribute(name, "CacheRemovals"),
+                        (Float) mBeanServer.getAttribute(name, "CacheHitPercentage")));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("캐시 통계를 읽을 수 없습니다.", e);
+        }
+        result.add(orderQueryCache.stats("orderQueryCache"));
+        result.sort(Comparator.comparing(CacheRegionStats::getRegion));
+        return result;
+    }
+}
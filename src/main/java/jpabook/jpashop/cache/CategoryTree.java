@@ -0,0 +1,104 @@
+package jpabook.jpashop.cache;
+
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.category.CategoryNodeDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 카테고리 트리 스냅샷(CategoryTreeSnapshot) 보관, copy-on-write
+ * - 읽는 쪽은 current()로 받은 스냅샷만 보므로 락도, 하이버네이트도 거치지 않는다.(요청 하나에서 같은 스냅샷을 계속 쓴다)
+ * - 카테고리가 바뀌면(CategoryService) 커밋된 뒤에 백그라운드 스레드가 새 스냅샷을 통째로 만들어서 바꿔 끼운다.
+ * - 만드는 동안 또 바뀌면 한 번 더 만든다. 그 사이에 몰린 요청은 한 번으로 합쳐진다.
+ *
+ * 바뀐 직후 새 스냅샷이 만들어지기 전까지(수 ms)는 이전 트리를 본다.
+ * 다른 인스턴스에서 바꾼 카테고리는 재시작 전까지 반영되지 않는다.(카테고리는 거의 바뀌지 않는다)
+ */
+@Slf4j
+@Component
+public class CategoryTree {
+    private final CategoryRepository categoryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicReference<CategoryTreeSnapshot> snapshot = new AtomicReference<>(CategoryTreeSnapshot.EMPTY);
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "jpashop-category-tree");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CategoryTree(CategoryRepository categoryRepository, PlatformTransactionManager transactionManager) {
+        this.categoryRepository = categoryRepository;
+        // 읽기 전용으로 두면 replica 프로파일에서 아직 복제되지 않은 replica로 가서 방금 커밋한 변경이 빠진 트리를 만든다.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public CategoryTreeSnapshot current() {
+        return snapshot.get();
+    }
+
+    /**
+     * 트랜잭션이 커밋되면 다시 만든다.(롤백되면 그대로)
+     */
+    public void rebuildAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            requestRebuild();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                requestRebuild();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void requestRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                rebuildPending.set(false); // 여기부터 바뀐 건 다음 빌드에서 반영된다.
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("category tree rebuild failed, keeping version {}", current().getVersion(), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 지금 스레드에서 새 스냅샷을 만들어 바꿔 끼운다.
+     */
+    public synchronized CategoryTreeSnapshot rebuild() {
+        long start = System.nanoTime();
+        List<CategoryNodeDto> nodes = transactionTemplate.execute(status -> categoryRepository.findAllNodes());
+        long loaded = System.nanoTime();
+        CategoryTreeSnapshot next = CategoryTreeSnapshot.build(nodes, current().getVersion() + 1);
+        snapshot.set(next);
+        log.info("category tree snapshot v{}: {} categories, query {}ms, build {}ms", next.getVersion(), next.size(),
+                (loaded - start) / 1_000_000, (System.nanoTime() - loaded) / 1_000_000);
+        if (next.size() < nodes.size()) {
+            log.warn("category tree has {} categories unreachable from roots (cycle)", nodes.size() - next.size());
+        }
+        return next;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
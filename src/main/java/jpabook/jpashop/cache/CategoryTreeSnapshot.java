@@ -0,0 +1,187 @@
+package jpabook.jpashop.cache;
+
+import jpabook.jpashop.repository.category.CategoryNodeDto;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 카테고리 트리 전체의 불변 스냅샷(배열), 만든 뒤에는 바뀌지 않으므로 여러 스레드가 락 없이 같이 읽는다.
+ * - 노드는 너비 우선 순서로 번호(index)를 매긴다. 루트가 0 ~ rootCount - 1, 한 노드의 자식은 연속된 번호라
+ *   자식 목록은 (childStart, childCount) 범위 하나로 표현된다.
+ * - id로 찾을 때는 id 오름차순 배열에서 이진 탐색한다.
+ * - 엔티티, 프록시를 들고 있지 않으므로 트랜잭션 밖에서 읽어도 된다.
+ */
+public final class CategoryTreeSnapshot {
+    public static final CategoryTreeSnapshot EMPTY = build(List.of(), 0);
+
+    private final long version;
+    private final int rootCount;
+    private final long[] ids;
+    private final String[] names;
+    private final int[] parents; // 부모 index, 루트면 -1
+    private final int[] depths;
+    private final int[] childStarts;
+    private final int[] childCounts;
+    private final long[] sortedIds; // id 오름차순
+    private final int[] sortedIndexes; // sortedIds[k]의 index
+
+    private CategoryTreeSnapshot(long version, int rootCount, long[] ids, String[] names, int[] parents, int[] depths,
+                                 int[] childStarts, int[] childCounts, long[] sortedIds, int[] sortedIndexes) {
+        this.version = version;
+        this.rootCount = rootCount;
+        this.ids = ids;
+        this.names = names;
+        this.parents = parents;
+        this.depths = depths;
+        this.childStarts = childStarts;
+        this.childCounts = childCounts;
+        this.sortedIds = sortedIds;
+        this.sortedIndexes = sortedIndexes;
+    }
+
+    /**
+     * id 순으로 정렬된 노드로 만든다. O(n), 정렬은 DB가 한다.
+     * 1) 부모 위치를 이진 탐색으로 찾고, 2) 부모별 자식 수를 세서 자식 목록을 한 배열에 모은 뒤(CSR),
+     * 3) 루트부터 너비 우선으로 번호를 다시 매긴다. 부모가 없는(지워진) 노드는 루트로 본다.
+     * 부모를 따라가다 순환하는 노드는 루트에서 닿지 않으므로 스냅샷에서 빠진다.
+     */
+    public static CategoryTreeSnapshot build(List<CategoryNodeDto> nodes, long version) {
+        int n = nodes.size();
+        long[] sortedIds = new long[n];
+        for (int k = 0; k < n; k++) {
+            sortedIds[k] = nodes.get(k).getId();
+        }
+
+        // 부모 위치(id 순서 기준), 부모별 자식 수
+        int[] parentOf = new int[n];
+        int[] childCountOf = new int[n];
+        int rootCount = 0;
+        for (int k = 0; k < n; k++) {
+            Long parentId = nodes.get(k).getParentId();
+            int parent = parentId == null ? -1 : Arrays.binarySearch(sortedIds, parentId);
+            parentOf[k] = parent < 0 ? -1 : parent;
+            if (parentOf[k] < 0) {
+                rootCount++;
+            } else {
+                childCountOf[parentOf[k]]++;
+            }
+        }
+
+        // 부모별 자식 목록(id 순), childrenOf[childStartOf[k] ..] 가 k의 자식
+        int[] childStartOf = new int[n + 1];
+        for (int k = 0; k < n; k++) {
+            childStartOf[k + 1] = childStartOf[k] + childCountOf[k];
+        }
+        int[] fill = Arrays.copyOf(childStartOf, n);
+        int[] childrenOf = new int[n];
+        for (int k = 0; k < n; k++) {
+            if (parentOf[k] >= 0) {
+                childrenOf[fill[parentOf[k]]++] = k;
+            }
+        }
+
+        // 너비 우선 번호, order[i] = i번째 노드의 id 순서 위치
+        int[] order = new int[n];
+        int[] indexOf = new int[n];
+        Arrays.fill(indexOf, -1);
+        int size = 0;
+        for (int k = 0; k < n; k++) {
+            if (parentOf[k] < 0) {
+                indexOf[k] = size;
+                order[size++] = k;
+            }
+        }
+        int[] childStarts = new int[n];
+        for (int i = 0; i < size; i++) {
+            int k = order[i];
+            childStarts[i] = size;
+            for (int c = childStartOf[k]; c < childStartOf[k + 1]; c++) {
+                indexOf[childrenOf[c]] = size;
+                order[size++] = childrenOf[c];
+            }
+        }
+
+        long[] ids = new long[size];
+        String[] names = new String[size];
+        int[] parents = new int[size];
+        int[] depths = new int[size];
+        int[] childCounts = new int[size];
+        for (int i = 0; i < size; i++) {
+            int k = order[i];
+            ids[i] = sortedIds[k];
+            names[i] = nodes.get(k).getName();
+            parents[i] = parentOf[k] < 0 ? -1 : indexOf[parentOf[k]];
+            depths[i] = parents[i] < 0 ? 0 : depths[parents[i]] + 1; // 부모가 항상 먼저 나온다.
+            childCounts[i] = childCountOf[k];
+        }
+
+        // 순환으로 빠진 노드가 있으면 id 조회 배열에서도 뺀다.
+        long[] reachableIds = new long[size];
+        int[] sortedIndexes = new int[size];
+        int r = 0;
+        for (int k = 0; k < n; k++) {
+            if (indexOf[k] >= 0) {
+                reachableIds[r] = sortedIds[k];
+                sortedIndexes[r++] = indexOf[k];
+            }
+        }
+        return new CategoryTreeSnapshot(version, rootCount, ids, names, parents, depths,
+                Arrays.copyOf(childStarts, size), childCounts, reachableIds, sortedIndexes);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int rootCount() {
+        return rootCount;
+    }
+
+    /**
+     * id의 index, 없으면 -1
+     */
+    public int indexOf(long id) {
+        int k = Arrays.binarySearch(sortedIds, id);
+        return k < 0 ? -1 : sortedIndexes[k];
+    }
+
+    public long id(int index) {
+        return ids[index];
+    }
+
+    public String name(int index) {
+        return names[index];
+    }
+
+    public int parent(int index) {
+        return parents[index];
+    }
+
+    public int depth(int index) {
+        return depths[index];
+    }
+
+    public int childStart(int index) {
+        return childStarts[index];
+    }
+
+    public int childCount(int index) {
+        return childCounts[index];
+    }
+
+    /**
+     * 루트부터 index까지의 경로(빵부스러기), 0번이 루트
+     */
+    public int[] ancestry(int index) {
+        int[] path = new int[depths[index] + 1];
+        for (int i = index, d = path.length - 1; i >= 0; i = parents[i], d--) {
+            path[d] = i;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,120 @@
+package jpabook.jpashop.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 주문 조회 결과 캐시(대시보드처럼 같은 조건으로 반복 조회하는 경우)
+ * - 키는 쿼리 이름 + 파라미터, 크기 제한(W-TinyLFU)과 TTL이 있는 Caffeine 캐시를 쓴다.
+ * - 주문/취소(회원 이름 변경 포함)가 커밋되면 전체를 무효화한다. 주문 조회 결과는 어떤 주문이든 바뀔 수 있기 때문이다.
+ * - 무효화할 때마다 세대(generation)를 올려서, 무효화 전에 시작한 조회가 끝난 뒤 옛날 결과를 다시 넣지 못하게 한다.
+ *
+ * 캐시한 값은 여러 요청이 같이 보므로 수정하면 안 된다.(불변 리스트로 넣는다)
+ *
+ * 통계는 get()이 직접 센다. Caffeine의 loader를 쓰지 않고 세대까지 비교하므로 Caffeine hit/miss와는 다르다.
+ * (evictions만 Caffeine 값을 쓰고, removals는 무효화로 지워진 항목 수를 removalListener로 센다)
+ */
+@Component
+public class OrderQueryCache {
+    private final Cache<Object, Entry> cache;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder removals = new LongAdder();
+
+    public OrderQueryCache(@Value("${jpashop.order-query-cache.maximum-size:1000}") long maximumSize,
+                           @Value("${jpashop.order-query-cache.ttl:30s}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .executor(Runnable::run) // removalListener를 호출 스레드에서 바로 실행(통계가 늦게 반영되지 않게)
+                .removalListener((key, value, cause) -> {
+                    if (cause == RemovalCause.EXPLICIT) {
+                        removals.increment();
+                    }
+                })
+                .build();
+    }
+
+    public static Object key(String queryName, Object... parameters) {
+        Object[] key = new Object[parameters.length + 1];
+        key[0] = queryName;
+        System.arraycopy(parameters, 0, key, 1, parameters.length);
+        return Arrays.asList(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(Object key, Supplier<List<T>> loader) {
+        long current = generation.get();
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.generation == current) {
+            hits.increment();
+            return (List<T>) entry.value;
+        }
+        misses.increment();
+
+        List<T> value = List.copyOf(loader.get());
+        if (generation.get() == current) {
+            cache.put(key, new Entry(current, value));
+            puts.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋된 뒤에 무효화한다.(트랜잭션 밖이면 바로)
+     */
+    public void invalidateAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateAll();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateAll();
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public CacheRegionStats stats(String region) {
+        long hitCount = hits.sum();
+        long requestCount = hitCount + misses.sum();
+        return new CacheRegionStats(region,
+                hitCount,
+                requestCount - hitCount,
+                puts.sum(),
+                cache.stats().evictionCount(),
+                removals.sum(),
+                requestCount == 0 ? 0f : hitCount * 100f / requestCount);
+    }
+
+    private static class Entry {
+        private final long generation;
+        private final List<?> value;
+
+        Entry(long generation, List<?> value) {
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package jpabook.jpashop.datasource;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청 범위를 열어서, 요청 안에서 쓰기 트랜잭션 뒤의 읽기가 primary로 가게 한다.(ReplicationRoutingDataSource)
+ */
+@Component
+@Profile("replica")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReplicationRoutingDataSource.beginRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicationRoutingDataSource.endRequest();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package jpabook.jpashop.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * replica 지연을 주기적으로 확인해서 허용치(jpashop.datasource.replica.max-lag)를 넘으면 읽기를 primary로 돌린다.
+ * 지연은 lag-query(초 단위 값을 돌려주는 쿼리)로 구한다. DB마다 다르므로 설정으로 받는다.
+ * ex) PostgreSQL: select extract(epoch from now() - pg_last_xact_replay_timestamp())
+ * lag-query가 없으면 연결만 확인한다.
+ */
+@Slf4j
+@Component
+@Profile("replica")
+public class ReplicaLagMonitor {
+    private final JdbcTemplate replica;
+    private final ReplicationRoutingDataSource routingDataSource;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+
+    public ReplicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                             ReplicationRoutingDataSource routingDataSource,
+                             @Value("${jpashop.datasource.replica.lag-query:}") String lagQuery,
+                             @Value("${jpashop.datasource.replica.max-lag:5s}") Duration maxLag) {
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.replica.setQueryTimeout(1);
+        this.routingDataSource = routingDataSource;
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.datasource.replica.lag-check-interval-ms:1000}")
+    public void check() {
+        boolean available;
+        try {
+            if (StringUtils.hasText(lagQuery)) {
+                Double lag = replica.queryForObject(lagQuery, Double.class);
+                available = lag != null && lag <= maxLagSeconds;
+            } else {
+                replica.queryForObject("select 1", Integer.class);
+                available = true;
+            }
+        } catch (RuntimeException e) {
+            available = false;
+        }
+
+        if (available != routingDataSource.isReplicaAvailable()) {
+            log.warn("replica {}", available ? "caught up, routing reads to replica" : "lagging or down, routing reads to primary");
+        }
+        routingDataSource.setReplicaAvailable(available);
+    }
+}
@@ -0,0 +1,55 @@
+package jpabook.jpashop.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 읽기 전용 트랜잭션은 replica, 나머지(쓰기 트랜잭션, 트랜잭션 밖)는 primary로 보낸다.
+ * - 트랜잭션이 readOnly인지는 커넥션을 실제로 얻을 때 알 수 있으므로 LazyConnectionDataSourceProxy로 감싸서 쓴다.
+ *   (JpaTransactionManager는 트랜잭션 시작 시 커넥션을 먼저 얻고, readOnly 여부는 그 다음에 설정된다)
+ * - read-your-writes: 요청 안에서 쓰기 트랜잭션이 한 번이라도 있었으면 그 요청의 나머지 읽기는 primary로 보낸다.
+ *   (ReadYourWritesFilter가 요청 범위를 연다, 요청 밖의 스레드는 적용되지 않는다)
+ * - replica 지연이 허용치를 넘거나 확인에 실패하면 replica가 따라잡을 때까지 읽기도 primary로 보낸다.(ReplicaLagMonitor)
+ */
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Target {PRIMARY, REPLICA}
+
+    private static final ThreadLocal<RequestState> REQUEST = new ThreadLocal<>();
+
+    private volatile boolean replicaAvailable = true;
+
+    public static void beginRequest() {
+        REQUEST.set(new RequestState());
+    }
+
+    public static void endRequest() {
+        REQUEST.remove();
+    }
+
+    public void setReplicaAvailable(boolean replicaAvailable) {
+        this.replicaAvailable = replicaAvailable;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        RequestState request = REQUEST.get();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (request != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                request.wrote = true;
+            }
+            return Target.PRIMARY;
+        }
+        if ((request != null && request.wrote) || !replicaAvailable) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    private static class RequestState {
+        private boolean wrote;
+    }
+}
@@ -1,23 +1,43 @@
 package jpabook.jpashop.domain;
 
 import jpabook.jpashop.domain.item.Item;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_category_path", columnList = "path"))
+@Cacheable // 카테고리는 거의 바뀌지 않으므로 엔티티, 컬렉션(items, child) 모두 2차 캐시에 둔다.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 public class Category {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq_generator")
+    @SequenceGenerator(name = "category_seq_generator", sequenceName = "category_seq", allocationSize = 50)
     @Column(name = "category_id")
     private Long id;
 
     private String name;
 
+    /**
+     * 경로 구체화(materialized path): 루트부터 자기 자신까지의 id, ex) 루트(1) "/1/", 자식 "/1/5/", 손자 "/1/5/9/"
+     * - 자기 자신과 하위 트리 전체가 "path like '내 경로%'" 범위 조회 한 번이라 깊이와 관계없이 idx_category_path로 찾는다.
+     *   (parent, child로 내려가면 단계마다 지연 로딩이 일어난다)
+     * - 경로에 자기 id가 들어가므로 저장해서 id를 받은 뒤 정한다.(initRootPath, addChildCategory)
+     * - 옮길 때 하위 카테고리의 경로는 CategoryRepository.movePaths가 update 한 번으로 바꾼다.
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(length = 1000)
+    private String path;
+
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @ManyToMany
     @JoinTable(name = "category_item",
     joinColumns = @JoinColumn(name = "category_id"),
@@ -29,14 +49,35 @@ public class Category {
     @JoinColumn(name = "parent_id")
     private Category parent;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OneToMany(mappedBy = "parent")
     private List<Category> child = new ArrayList<>();
     /** 셀프 관계 설정 **/
 
     //==연관 관계 편의 메서드(양방향일 때 필수적으로 설정할 것)==//
     public void addChildCategory(Category child){
+        if (id == null || child.getId() == null) {
+            throw new IllegalStateException("카테고리를 먼저 저장해야 합니다.(경로에 id가 들어간다)");
+        }
+        if (child == this || (child.getPath() != null && path.startsWith(child.getPath()))) {
+            throw new IllegalArgumentException("자기 자신이나 하위 카테고리를 자식으로 붙일 수 없습니다.");
+        }
+        if (child.getParent() != null) { // 다른 부모 밑에 있던 카테고리를 옮긴다.
+            child.getParent().getChild().remove(child);
+        }
         this.child.add(child);
         child.setParent(this);
+        child.path = path + child.getId() + "/"; // 자기 경로만 바꾼다. 하위 카테고리는 CategoryRepository.movePaths
     }
     //==연관 관계 편의 메서드(양방향일 때 필수적으로 설정할 것)==//
+
+    /**
+     * 루트 카테고리 경로, 저장해서 id를 받은 뒤 호출한다.
+     */
+    public void initRootPath(){
+        if (id == null) {
+            throw new IllegalStateException("카테고리를 먼저 저장해야 합니다.(경로에 id가 들어간다)");
+        }
+        this.path = "/" + id + "/";
+    }
 }
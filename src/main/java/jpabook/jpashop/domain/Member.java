@@ -3,6 +3,8 @@ package jpabook.jpashop.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
@@ -10,11 +12,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+// 이름 중복은 서비스에서 먼저 검사하지만, 동시에 같은 이름으로 가입하는 경우는 유니크 제약 조건으로 막는다.(인덱스도 같이 생긴다)
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_member_name", columnNames = "name"))
+@Cacheable // 2차 캐시, 이름 변경은 변경 감지로 커밋될 때 캐시에도 반영된다.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 public class Member {
-    @Id @GeneratedValue
-
+    /**
+     * 엔티티마다 시퀀스를 따로 두고 allocationSize 만큼 id를 메모리에 미리 받아온다.(pooled-lo 최적화, yml 설정 참고)
+     * 기본 @GeneratedValue는 모든 엔티티가 hibernate_sequence 하나를 공유하면서 persist할 때마다 시퀀스를 조회한다.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
 
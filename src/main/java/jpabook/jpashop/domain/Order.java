@@ -18,7 +18,8 @@ import java.util.List;
 public class Order {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq_generator")
+    @SequenceGenerator(name = "order_seq_generator", sequenceName = "order_seq", allocationSize = 50)
     @Column(name="order_id")
     private Long id;
 
@@ -86,14 +87,22 @@ public class Order {
      * 주문 취소
      */
     public void cancel(){
+        markCanceled();
+        for(OrderItem orderItem: orderItems){
+            orderItem.cancel();
+        }
+    }
+
+    /**
+     * 주문 상태만 취소로 변경(재고 원복은 호출하는 쪽에서 처리)
+     * OrderService는 재고를 DB에서 원자적으로 되돌리기 때문에 이 메서드를 사용한다.
+     */
+    public void markCanceled(){
         if(delivery.getStatus() == DeliveryState.COMP){
             throw new IllegalStateException("이미 배송 완료된 상품은 취소가 불가능합니ㅣ다.");
         }
 
         this.setStatus(OrderStatus.CANCEL);
-        for(OrderItem orderItem: orderItems){
-            orderItem.cancel();
-        }
     }
 
     //==조회 로직==/
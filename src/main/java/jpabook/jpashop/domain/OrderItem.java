@@ -14,7 +14,9 @@ import javax.persistence.*;
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED) // 생성 메서드로만 생성하기 위해 거는 제약 조건.
 public class OrderItem {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq_generator")
+    @SequenceGenerator(name = "order_item_seq_generator", sequenceName = "order_item_seq", allocationSize = 50)
     @Column(name = "order_item_id")
     private Long id;
 
@@ -36,19 +38,40 @@ public class OrderItem {
 
     //==생성 메서드==//
     public static OrderItem createOrderItem(Item item, int orderPrice, int count){
+        checkNotHot(item);
+        OrderItem orderItem = createReservedOrderItem(item, orderPrice, count);
+
+        item.removeStock(count); // 주문한 수량만큼 재고에서 뺀다
+        return orderItem;
+    }
+
+    /**
+     * 재고를 이미 차감한 상태에서 주문상품을 생성한다.
+     * OrderService처럼 DB에서 재고를 원자적으로 차감(ItemRepository.removeStock)한 경우 엔티티 재고를 다시 빼지 않는다.
+     */
+    public static OrderItem createReservedOrderItem(Item item, int orderPrice, int count){
         OrderItem orderItem = new OrderItem();
         orderItem.setItem(item);
         orderItem.setOrderPrice(orderPrice);
         orderItem.setCount(count);
-
-        item.removeStock(count); // 주문한 수량만큼 재고에서 뺀다
         return orderItem;
     }
     //==비즈니스 로직==//
     public void cancel() {
+        checkNotHot(getItem());
         getItem().addStock(count); //오더 아이템을 캔슬해서 재고수량을 원복해준다.
     }
 
+    /**
+     * hot 상품의 재고는 인메모리 카운터(HotStockReservations)가 기준이라 엔티티 값을 고치면 카운터와 어긋난다.
+     * 엔티티는 스프링 빈을 모르므로 hot 상품은 OrderService(order, cancelOrder)를 거치도록 막는다.
+     */
+    private static void checkNotHot(Item item) {
+        if (item.isHot()) {
+            throw new IllegalStateException("hot 상품의 재고는 OrderService에서 변경해야 합니다. itemId=" + item.getId());
+        }
+    }
+
     //==조회 로직==//
 
     /**
@@ -4,6 +4,8 @@ import jpabook.jpashop.domain.Category;
 import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -13,11 +15,14 @@ import java.util.List;
 // 상속 관계라 전략을 짜줘야함. JOINED: 가장 정규환된 스타일, SINGLE_TABLE: 한 테이블에 다 넣는 전략, TABLE_PER_CLASS: 자식 클래스마다 테이블을 만든다.
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype") // SingleTable이라 자식 클래스들 구분될 때 어떤식으로 할지 나오는 그런 것.
+@Cacheable // 2차 캐시(조회가 쓰기보다 훨씬 많다), 자식 클래스도 같은 region을 쓴다.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 public abstract class Item {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq_generator")
+    @SequenceGenerator(name = "item_seq_generator", sequenceName = "item_seq", allocationSize = 50)
     @Column(name = "item_id")
     private Long id;
 
@@ -25,6 +30,11 @@ public abstract class Item {
     private int price;
     private int stockQuantity;
 
+    /**
+     * 플래시 세일처럼 주문이 몰리는 상품, 재고를 메모리(HotStockReservations)에서 차감하고 DB에는 주기적으로 반영한다.
+     */
+    private boolean hot;
+
     @ManyToMany(mappedBy = "items")
     private List<Category> categories = new ArrayList<>();
 
@@ -0,0 +1,29 @@
+package jpabook.jpashop.domain.sales;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * 상품별, 일별 매출 집계(주문 상태인 주문만, 취소되면 빠진다)
+ * - 주문/취소 트랜잭션 안에서 같이 갱신한다.(SalesAggregateRepository)
+ * - 인기 상품은 같은 row에 갱신이 몰려서 row 락을 기다리게 되므로 slot으로 나눠서 쌓고, 조회할 때 합친다.
+ * - pk(item_id, sales_date, slot)로 상품별 조회, idx_item_daily_sales_date로 기간별 조회
+ */
+@Entity
+@Table(name = "item_daily_sales", indexes = @Index(name = "idx_item_daily_sales_date", columnList = "sales_date"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ItemDailySales {
+
+    @EmbeddedId
+    private ItemDailySalesId id;
+
+    private long revenue; // sum(orderPrice * count)
+    private long units; // sum(count)
+}
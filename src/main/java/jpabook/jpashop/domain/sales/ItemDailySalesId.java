@@ -0,0 +1,29 @@
+package jpabook.jpashop.domain.sales;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Getter
+@EqualsAndHashCode
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ItemDailySalesId implements Serializable {
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    private int slot;
+}
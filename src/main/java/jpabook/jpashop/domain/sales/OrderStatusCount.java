@@ -0,0 +1,24 @@
+package jpabook.jpashop.domain.sales;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * 주문 상태별 주문 수 집계, 모든 주문이 갱신하는 row라 slot으로 나눠서 쌓는다.(ItemDailySales 참고)
+ */
+@Entity
+@Table(name = "order_status_count")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderStatusCount {
+
+    @EmbeddedId
+    private OrderStatusCountId id;
+
+    private long orderCount;
+}
@@ -0,0 +1,27 @@
+package jpabook.jpashop.domain.sales;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Embeddable;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import java.io.Serializable;
+
+@Embeddable
+@Getter
+@EqualsAndHashCode
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderStatusCountId implements Serializable {
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private int slot;
+}
@@ -0,0 +1,79 @@
+package jpabook.jpashop.domain.view;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * 주문 조회용 비정규화 테이블(읽기 모델), 주문상품 하나당 row 하나
+ * - 주문 조회 API가 orders, member, delivery, order_item, item을 조인하지 않고 이 테이블만 읽는다.
+ * - 주문/취소, 상품/회원 이름 변경 트랜잭션 안에서 OrderViewProjector가 같이 갱신한다.
+ * - 연관관계 없이 id와 값만 복사해둔다.(원본 엔티티를 로딩하지 않는다)
+ */
+@Entity
+@Table(name = "order_view", indexes = {
+        @Index(name = "idx_order_view_order", columnList = "order_id, order_item_id"),
+        @Index(name = "idx_order_view_item", columnList = "item_id"),
+        @Index(name = "idx_order_view_member", columnList = "member_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderView {
+
+    @Id
+    @Column(name = "order_item_id")
+    private Long orderItemId;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "member_id")
+    private Long memberId;
+    private String memberName;
+
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Embedded
+    private Address address; // 배송지
+
+    @Column(name = "item_id")
+    private Long itemId;
+    private String itemName;
+
+    private int orderPrice;
+    private int count;
+
+    //==생성 메서드==//
+    public static OrderView createOrderView(Order order, OrderItem orderItem) {
+        OrderView view = new OrderView();
+        view.orderItemId = orderItem.getId();
+        view.orderId = order.getId();
+        view.memberId = order.getMember().getId();
+        view.memberName = order.getMember().getName();
+        view.orderDate = order.getOrderDate();
+        view.status = order.getStatus();
+        view.address = order.getDelivery().getAddress();
+        view.itemId = orderItem.getItem().getId();
+        view.itemName = orderItem.getItem().getName();
+        view.orderPrice = orderItem.getOrderPrice();
+        view.count = orderItem.getCount();
+        return view;
+    }
+}
@@ -0,0 +1,10 @@
+package jpabook.jpashop.exception;
+
+/**
+ * 상품 검색 색인을 아직 만드는 중(애플리케이션 시작 직후), API는 503으로 돌려준다.(ApiExceptionHandler)
+ */
+public class SearchIndexNotReadyException extends RuntimeException{
+    public SearchIndexNotReadyException(String message) {
+        super(message);
+    }
+}
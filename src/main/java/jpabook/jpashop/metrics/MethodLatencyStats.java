@@ -0,0 +1,19 @@
+package jpabook.jpashop.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MethodLatencyStats {
+    private String layer;
+    private String method; // 클래스명.메서드명
+    private long count; // 시작 이후 누적 호출 수
+    private long errors;
+    private double errorRate;
+    private double meanMs;
+    private double maxMs; // 최근 구간
+    private double p50Ms; // 최근 구간(기본 2분)
+    private double p95Ms;
+    private double p99Ms;
+}
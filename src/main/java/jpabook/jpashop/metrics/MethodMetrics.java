@@ -0,0 +1,70 @@
+package jpabook.jpashop.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MethodTimingAspect가 기록한 Timer를 메서드별로 모아 지연 시간/에러율을 계산한다.
+ * 백분위수는 성공 호출 기준이다.(에러는 보통 빨리 끝나서 섞으면 값이 왜곡된다)
+ */
+@Component
+@RequiredArgsConstructor
+public class MethodMetrics {
+    private final MeterRegistry registry;
+
+    public List<MethodLatencyStats> findAll() {
+        Map<String, Timer[]> byMethod = new LinkedHashMap<>();
+        for (Timer timer : registry.find(MethodTimingAspect.METRIC_NAME).timers()) {
+            String key = timer.getId().getTag("layer") + ":" + timer.getId().getTag("class") + "." + timer.getId().getTag("method");
+            Timer[] pair = byMethod.computeIfAbsent(key, k -> new Timer[2]);
+            pair["error".equals(timer.getId().getTag("outcome")) ? 1 : 0] = timer;
+        }
+
+        List<MethodLatencyStats> result = new ArrayList<>();
+        byMethod.forEach((key, pair) -> {
+            if (pair[0] == null || pair[1] == null) {
+                return;
+            }
+            HistogramSnapshot snapshot = pair[0].takeSnapshot();
+            long errors = pair[1].count();
+            long count = snapshot.count() + errors;
+            if (count == 0) {
+                return;
+            }
+            int separator = key.indexOf(':');
+            result.add(new MethodLatencyStats(
+                    key.substring(0, separator),
+                    key.substring(separator + 1),
+                    count,
+                    errors,
+                    (double) errors / count,
+                    snapshot.mean(TimeUnit.MILLISECONDS),
+                    snapshot.max(TimeUnit.MILLISECONDS),
+                    percentile(snapshot, 0.5),
+                    percentile(snapshot, 0.95),
+                    percentile(snapshot, 0.99)));
+        });
+        result.sort(Comparator.comparingDouble(MethodLatencyStats::getP99Ms).reversed());
+        return result;
+    }
+
+    private double percentile(HistogramSnapshot snapshot, double percentile) {
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+}
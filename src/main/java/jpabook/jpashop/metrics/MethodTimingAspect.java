@@ -0,0 +1,100 @@
+package jpabook.jpashop.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 컨트롤러 핸들러, @Service/@Repository 빈의 public 메서드 실행 시간을 Micrometer Timer로 기록한다.
+ * - 요청 처리 경로만 잰다. 같은 패키지의 @Component(HotStockReservations 등)와 @Scheduled, @EventListener 메서드는 빼서
+ *   주기 작업, 이벤트 처리가 요청 지연 분포에 섞이지 않게 한다.
+ * - 이름 jpashop.method, 태그 layer/class/method/outcome(success, error)
+ * - p50/p95/p99는 Micrometer가 HdrHistogram 기반으로 최근 구간(기본 2분) 값을 계산한다.
+ *
+ * 호출마다 하는 일은 Method로 미리 만들어둔 Timer를 찾고(ConcurrentHashMap) nanoTime 두 번 + record 뿐이다.
+ * 태그 생성, Timer 등록은 메서드당 처음 한 번만 한다.
+ * jpashop.metrics.method-timing.enabled=false 면 등록하지 않는다.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "jpashop.metrics.method-timing.enabled", matchIfMissing = true)
+public class MethodTimingAspect {
+    public static final String METRIC_NAME = "jpashop.method";
+
+    private final MeterRegistry registry;
+    private final Map<Method, Timers> timers = new ConcurrentHashMap<>();
+
+    public MethodTimingAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("within(jpabook.jpashop..*) && (" +
+            "@within(org.springframework.web.bind.annotation.RestController)" +
+            " || @within(org.springframework.stereotype.Controller)" +
+            " || @within(org.springframework.stereotype.Service)" +
+            " || @within(org.springframework.stereotype.Repository))" +
+            " && !@annotation(org.springframework.scheduling.annotation.Scheduled)" +
+            " && !@annotation(org.springframework.context.event.EventListener)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Timers methodTimers = timers.get(method);
+        if (methodTimers == null) {
+            methodTimers = timers.computeIfAbsent(method, m -> new Timers(joinPoint.getTarget().getClass(), m));
+        }
+
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            methodTimers.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            methodTimers.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private class Timers {
+        private final Timer success;
+        private final Timer error;
+
+        Timers(Class<?> targetClass, Method method) {
+            String className = targetClass.getSimpleName();
+            String layer = layer(targetClass);
+            this.success = timer(layer, className, method.getName(), "success");
+            this.error = timer(layer, className, method.getName(), "error");
+        }
+
+        private Timer timer(String layer, String className, String methodName, String outcome) {
+            return Timer.builder(METRIC_NAME)
+                    .tag("layer", layer)
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+        }
+
+        private String layer(Class<?> targetClass) {
+            if (AnnotatedElementUtils.hasAnnotation(targetClass, Service.class)) {
+                return "service";
+            }
+            if (AnnotatedElementUtils.hasAnnotation(targetClass, Repository.class)) {
+                return "repository";
+            }
+            return "controller";
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.repository.category.CategoryItemDto;
+import jpabook.jpashop.repository.category.CategoryNodeDto;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * 카테고리 하위 트리 조회는 모두 path 범위 조건(path like '내 경로%') 하나로 한다.(idx_category_path)
+ * path에 자기 id까지 들어있으므로 자기 자신과 하위 카테고리가 같은 범위에 있다.
+ * 깊이와 관계없이 쿼리 한 번이고, parent/child 연관관계를 따라 내려가지 않는다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CategoryRepository {
+    /**
+     * 하위 트리 범위의 카테고리에서 category_item으로 상품을 찾는다.(상품 테이블 전체를 훑지 않는다)
+     */
+    private static final String SUBTREE_ITEMS =
+            " from Category c join c.items i where c.path like :subtreePath";
+
+    private final EntityManager em;
+
+    public void save(Category category){
+        em.persist(category);
+    }
+
+    public Category findOne(Long id){
+        return em.find(Category.class, id);
+    }
+
+    public List<Category> findRoots(){
+        return em.createQuery("select c from Category c where c.parent is null order by c.id", Category.class)
+                .getResultList();
+    }
+
+    /**
+     * 전체 카테고리 트리(id, 이름, 부모 id)를 id 순으로, 엔티티를 만들지 않고 값만 읽는다.(CategoryTree 스냅샷용)
+     */
+    public List<CategoryNodeDto> findAllNodes(){
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.category.CategoryNodeDto(c.id, c.name, p.id)" +
+                                " from Category c" +
+                                " left join c.parent p" +
+                                " order by c.id", CategoryNodeDto.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, 1000)
+                .getResultList();
+    }
+
+    /**
+     * 하위 트리(자기 자신 포함)에 속한 상품, 상품 id 순 페이징
+     * 상품이 하위 트리의 여러 카테고리에 있어도 한 번만 나온다.(distinct)
+     */
+    public List<CategoryItemDto> findSubtreeItems(Category category, int offset, int limit){
+        return em.createQuery(
+                        "select distinct new jpabook.jpashop.repository.category.CategoryItemDto(i.id, i.name, i.price)" +
+                                SUBTREE_ITEMS +
+                                " order by i.id", CategoryItemDto.class)
+                .setParameter("subtreePath", category.getPath() + "%")
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 하위 카테고리 수(자기 자신 제외)
+     */
+    public long countDescendants(Category category){
+        return em.createQuery("select count(c) from Category c where c.path like :subtreePath and c.id <> :categoryId", Long.class)
+                .setParameter("subtreePath", category.getPath() + "%")
+                .setParameter("categoryId", category.getId())
+                .getSingleResult();
+    }
+
+    /**
+     * 하위 트리(자기 자신 포함)에 속한 상품 수
+     */
+    public long countSubtreeItems(Category category){
+        return em.createQuery(
+                        "select count(distinct i.id)" + SUBTREE_ITEMS, Long.class)
+                .setParameter("subtreePath", category.getPath() + "%")
+                .getSingleResult();
+    }
+
+    /**
+     * 카테고리를 옮긴 뒤 하위 카테고리의 경로 앞부분(oldPath)을 newPath로 바꾼다.(깊이, 개수와 관계없이 update 한 번)
+     * - 옮긴 카테고리 자신의 경로는 addChildCategory가 이미 바꿨다.(update 전에 flush되므로 oldPath 범위에서 빠진다)
+     * - 벌크 update는 2차 캐시를 거치지 않으므로 Category region을 비운다.
+     *   이미 영속성 컨텍스트에 올라온 하위 카테고리는 예전 경로를 가지고 있으므로 다시 읽어야 한다.
+     */
+    public int movePaths(String oldPath, String newPath){
+        int updated = em.createQuery(
+                        "update Category c set c.path = concat(:newPath, substring(c.path, :keepFrom))" +
+                                " where c.path like :oldPath")
+                .setParameter("newPath", newPath)
+                .setParameter("keepFrom", oldPath.length() + 1) // substring은 1부터 센다.
+                .setParameter("oldPath", oldPath + "%")
+                .executeUpdate();
+        em.getEntityManagerFactory().getCache().evict(Category.class);
+        return updated;
+    }
+}
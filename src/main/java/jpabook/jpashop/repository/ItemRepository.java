@@ -1,15 +1,31 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.persistence.Cache;
+import javax.persistence.CacheStoreMode;
 import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 @RequiredArgsConstructor
 public class ItemRepository {
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final String STOCK_QUERY_SPACE = "item_stock"; // 재고 update용, 어떤 엔티티 테이블과도 겹치지 않는다.
+    private static final String CACHE_STORE_MODE = "javax.persistence.cache.storeMode";
+
     private final EntityManager em;
 
     public void save(Item item){
@@ -27,4 +43,114 @@ public class ItemRepository {
     public List<Item> findAll(){
         return em.createQuery("select i from Item i", Item.class).getResultList();
     }
+
+    /**
+     * 재고 차감(조건부 update 한 번)
+     * - 엔티티를 읽고 값을 바꾸는(read-modify-write) 방식은 같은 상품을 동시에 주문하면 한쪽 변경이 유실된다.
+     * - "재고 >= 주문수량" 조건을 건 update 한 번으로 DB가 원자적으로 차감한다. 갱신된 row가 없으면 재고 부족이다.
+     * - 비관적 락처럼 트랜잭션 내내 row를 잡고 있지 않아서 동시 주문 처리량이 떨어지지 않는다.
+     * - 2차 캐시는 바꾼 상품 하나만 비운다.(evictStock)
+     */
+    public void removeStock(Item item, int quantity){
+        int updated = updateStock("update item set stock_quantity = stock_quantity - :quantity" +
+                        " where item_id = :id and stock_quantity >= :quantity", item.getId(), quantity);
+        if(updated == 0){
+            throw new NotEnoughStockException("need more stock");
+        }
+        refresh(item);
+    }
+
+    /**
+     * 재고 증가(주문 취소 시 원복), 차감과 마찬가지로 update 한 번으로 처리한다.
+     */
+    public void addStock(Item item, int quantity){
+        updateStock("update item set stock_quantity = stock_quantity + :quantity where item_id = :id", item.getId(), quantity);
+        refresh(item);
+    }
+
+    /**
+     * 재고 변화량 반영(hot 상품의 인메모리 예약 결과를 모아서 반영할 때 사용, 검증은 메모리에서 이미 끝났다)
+     */
+    public void changeStock(Long itemId, long delta){
+        updateStock("update item set stock_quantity = stock_quantity + :quantity where item_id = :id", itemId, Math.toIntExact(delta));
+    }
+
+    /**
+     * JPQL 벌크 update는 하이버네이트가 Item 2차 캐시 region 전체를 비운다.(주문 한 건마다 모든 상품 캐시가 날아간다)
+     * native update에 엔티티 테이블이 아닌 query space(STOCK_QUERY_SPACE)를 지정하면 region을 비우지 않으므로
+     * 바꾼 상품만 직접 비운다.
+     */
+    private int updateStock(String sql, Long itemId, int quantity){
+        int updated = em.createNativeQuery(sql)
+                .setParameter("quantity", quantity)
+                .setParameter("id", itemId)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(STOCK_QUERY_SPACE)
+                .executeUpdate();
+        if (updated > 0) {
+            evictStock(itemId);
+        }
+        return updated;
+    }
+
+    /**
+     * 지금 비우고 트랜잭션이 끝난 뒤에 한 번 더 비운다.
+     * (커밋 전에 다른 트랜잭션이 예전 값을 다시 캐시에 넣었을 수 있다, 그래도 남는 경우는 region TTL(5분)까지)
+     */
+    private void evictStock(Long itemId){
+        Cache cache = em.getEntityManagerFactory().getCache();
+        cache.evict(Item.class, itemId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(Item.class, itemId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 전체 상품을 한 건씩 읽는다.(검색 색인을 만들 때)
+     * fetch size 만큼씩 읽고 일정 건수마다 영속성 컨텍스트를 비워서 상품 수와 관계없이 메모리 사용량을 일정하게 유지한다.
+     * 한 번씩만 읽는 값이라 2차 캐시에는 넣지 않는다.
+     */
+    public void streamAll(Consumer<Item> consumer){
+        int[] read = {0};
+        em.createQuery("select i from Item i order by i.id", Item.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                .getResultStream()
+                .forEach(item -> {
+                    consumer.accept(item);
+                    if (++read[0] % STREAM_FETCH_SIZE == 0) {
+                        em.clear();
+                    }
+                });
+    }
+
+    public List<Item> findHotItems(){
+        return em.createQuery("select i from Item i where i.hot = true", Item.class).getResultList();
+    }
+
+    /**
+     * 벌크 update는 영속성 컨텍스트를 거치지 않으므로 이미 로딩된 엔티티는 DB 값으로 다시 읽어온다.
+     * (아직 초기화되지 않은 프록시는 나중에 초기화될 때 최신 값을 읽으므로 그냥 둔다)
+     * 커밋 전 값이므로 2차 캐시에는 넣지 않는다.
+     */
+    private void refresh(Item item){
+        if(Hibernate.isInitialized(item) && em.contains(item)){
+            em.refresh(item, Collections.singletonMap(CACHE_STORE_MODE, CacheStoreMode.BYPASS));
+        }
+    }
+
+    /**
+     * 여러 상품을 IN 쿼리 한 번으로 조회
+     */
+    public List<Item> findAllById(Collection<Long> ids){
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
 }
@@ -2,11 +2,14 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /** Repository로 스프링 빈에 등록해줌
  * JpashopApplication의 @SpringBootApplication 어노테이션을 통해 해당 클래스(JpashopApplication)보다 하위에 있어
@@ -38,6 +41,38 @@ public class MemberRepository {
         return em.createQuery("select m from Member m", Member.class).getResultList();
     }
 
+    public List<Member> findAllById(Collection<Long> ids){
+        return em.createQuery("select m from Member m where m.id in :ids", Member.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 이름 존재 여부만 확인한다. 엔티티 목록을 다 읽어오지 않고 uk_member_name 인덱스로 한 건만 찾는다.
+     */
+    public boolean existsByName(String name){
+        return !em.createQuery("select m.id from Member m where m.name = :name", Long.class)
+                .setParameter("name", name)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * 모든 회원 이름을 스트리밍으로 읽는다.(MemberNameFilter 초기화용, 트랜잭션 안에서 호출)
+     */
+    public void streamAllNames(Consumer<String> consumer){
+        em.createQuery("select m.name from Member m", String.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, 1000)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream()
+                .forEach(consumer);
+    }
+
+    public void flush(){
+        em.flush();
+    }
+
     public List<Member> findByName(String name){
         return em.createQuery("select m from Member m where m.name = :name", Member.class)
                 .setParameter("name", name)
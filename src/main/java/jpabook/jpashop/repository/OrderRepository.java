@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
 import java.util.List;
 
 @Repository
@@ -24,6 +25,16 @@ public class OrderRepository {
         return em.find(Order.class, id);
     }
 
+    /**
+     * 쌓인 insert/update를 DB에 내보내고(jdbc batch_size 단위로 묶여서 나간다) 영속성 컨텍스트를 비운다.
+     * 대량 저장 중에 영속성 컨텍스트가 계속 커지면 flush마다 dirty checking 대상도 같이 늘어난다.
+     * 비운 뒤에는 이전에 읽은 엔티티가 모두 준영속이 되므로 호출하는 쪽에서 다시 읽어야 한다.
+     */
+    public void flushAndClear(){
+        em.flush();
+        em.clear();
+    }
+
     public List<Order> findAll(OrderSearch orderSearch){ // 강의 후반부에서 Querydsl로 동적 쿼리로 변경할 것.
         return em.createQuery("select o from Order o join o.member m" +
                 " where o.status = :status " + "and m.name like :name",
@@ -39,38 +50,60 @@ public class OrderRepository {
      * 이번 강의에선 일단 이렇게 진행한다. 나중에 Querydsl을 사용한 방법으로 내가 수정해보자.
      */
     public List<Order> findAllByString(OrderSearch orderSearch) {
-        //language=JPAQL
-        String jpql = "select o From Order o join o.member m";
-        boolean isFirstCondition = true;
+        return createSearchQuery("select o From Order o join o.member m", "", orderSearch, Order.class)
+                .getResultList();
+    }
+
+    /**
+     * findAllByString과 같은 조건으로 주문 id만 조회한다.(결과 캐시용, OrderService.findOrders)
+     */
+    public List<Long> findIdsByString(OrderSearch orderSearch) {
+        return createSearchQuery("select o.id From Order o join o.member m", " order by o.id", orderSearch, Long.class)
+                .getResultList();
+    }
+
+    /**
+     * 검색 조건(주문 상태, 회원 이름)으로 where 절을 만들고 파라미터를 바인딩한다.
+     * findAllByString, findIdsByString이 같이 써서 두 조회의 조건이 어긋나지 않게 한다.
+     */
+    private <T> TypedQuery<T> createSearchQuery(String select, String orderBy, OrderSearch orderSearch, Class<T> resultClass) {
+        List<String> conditions = new ArrayList<>();
         //주문 상태 검색
         if (orderSearch.getOrderStatus() != null) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " o.status = :status";
+            conditions.add("o.status = :status");
         }
         //회원 이름 검색
         if (StringUtils.hasText(orderSearch.getMemberName())) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " m.name like :name";
+            conditions.add("m.name like :name");
         }
-        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
+        String where = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+
+        TypedQuery<T> query = em.createQuery(select + where + orderBy, resultClass)
                 .setMaxResults(1000); //최대 1000건
         if (orderSearch.getOrderStatus() != null) {
-            query = query.setParameter("status", orderSearch.getOrderStatus());
+            query.setParameter("status", orderSearch.getOrderStatus());
         }
         if (StringUtils.hasText(orderSearch.getMemberName())) {
-            query = query.setParameter("name", orderSearch.getMemberName());
+            query.setParameter("name", orderSearch.getMemberName());
         }
-        return query.getResultList();
+        return query;
+    }
+
+    /**
+     * id 목록으로 주문 조회(회원, 배송 페치 조인), pk 조회라 검색 조건 조인보다 훨씬 가볍다.
+     */
+    public List<Order> findAllByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createQuery(
+                "select o from Order o" +
+                        " join fetch o.member m" +
+                        " join fetch o.delivery d" +
+                        " where o.id in :ids" +
+                        " order by o.id", Order.class)
+                .setParameter("ids", ids)
+                .getResultList();
     }
 
     public List<Order> findAllWithMemberDelivery() {
@@ -91,6 +124,24 @@ public class OrderRepository {
                 .getResultList();
     }
 
+    /**
+     * 키셋(seek) 페이징
+     * - offset 방식은 앞의 offset 개 row를 DB가 모두 읽고 버리기 때문에 뒤 페이지로 갈수록 느려진다.
+     * - 마지막으로 조회한 order id 이후부터 pk 인덱스를 타고 limit 개만 읽으므로 페이지 깊이와 무관하게 일정한 속도가 나온다.
+     * - 컬렉션은 V3.1과 동일하게 지연 로딩 + default_batch_fetch_size로 조회한다.
+     */
+    public List<Order> findAllWithMemberDeliveryAfter(Long afterId, int limit) {
+        return em.createQuery(
+                "select o from Order o" +
+                        " join fetch o.member m" +
+                        " join fetch o.delivery d" +
+                        " where o.id > :afterId" +
+                        " order by o.id", Order.class)
+                .setParameter("afterId", afterId == null ? 0L : afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
     public List<Order> findAllWithItem() {
         /**
          * JPQL의 distinct
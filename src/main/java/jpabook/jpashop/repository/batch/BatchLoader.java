@@ -0,0 +1,94 @@
+package jpabook.jpashop.repository.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 키(id)별 1:N 조회를 모아서 IN 쿼리로 한꺼번에 읽는다.(DataLoader 방식)
+ * 1. DTO를 조립하면서 필요한 키를 register 한다.
+ * 2. 처음 get을 호출할 때 등록된 키 중 아직 읽지 않은 것을 chunkSize 단위 IN 쿼리로 읽는다.
+ * 3. 결과는 키별로 묶어 두고, 같은 키는 다시 조회하지 않는다.
+ *
+ * 조립 한 번(요청 하나)에서만 쓰고 버린다.(BatchLookups에서 매번 새로 만든다) 스레드에 안전하지 않다.
+ *
+ * 청크는 호출한 스레드에서 차례로 읽는다.(호출한 쪽 EntityManager, 트랜잭션, 커넥션을 그대로 쓰고 SqlCounter에도 잡힌다)
+ * 청크를 다른 스레드에서 읽으면 OSIV/트랜잭션이 커넥션을 잡은 채로 풀의 커넥션을 더 기다리게 되어 풀이 고갈될 수 있다.
+ */
+public class BatchLoader<V> {
+
+    /**
+     * keys에 해당하는 값을 읽어 (키, 값) 쌍으로 sink에 넘긴다.
+     */
+    public interface ChunkQuery<V> {
+        void load(List<Long> keys, Sink<V> sink);
+    }
+
+    public interface Sink<V> {
+        void accept(long key, V value);
+    }
+
+    private final ChunkQuery<V> query;
+    private final int chunkSize;
+
+    private final LongObjectMap<List<V>> loaded;
+    private long[] pending = new long[16];
+    private int pendingCount;
+
+    BatchLoader(ChunkQuery<V> query, int chunkSize, int expectedKeys) {
+        this.query = query;
+        this.chunkSize = chunkSize;
+        this.loaded = new LongObjectMap<>(expectedKeys);
+    }
+
+    public void register(long key) {
+        if (loaded.containsKey(key)) {
+            return;
+        }
+        loaded.put(key, null); // 중복 등록 방지, dispatch 하면 값이 채워진다.
+        if (pendingCount == pending.length) {
+            long[] grown = new long[pending.length << 1];
+            System.arraycopy(pending, 0, grown, 0, pendingCount);
+            pending = grown;
+        }
+        pending[pendingCount++] = key;
+    }
+
+    /**
+     * 키에 해당하는 값 목록, 없으면 빈 목록
+     */
+    public List<V> get(long key) {
+        if (!loaded.containsKey(key)) {
+            register(key);
+        }
+        if (pendingCount > 0) {
+            dispatch();
+        }
+        List<V> values = loaded.get(key);
+        return values == null ? Collections.emptyList() : values;
+    }
+
+    public void dispatch() {
+        long[] keys = pending;
+        int count = pendingCount;
+        pending = new long[16];
+        pendingCount = 0;
+        for (int from = 0; from < count; from += chunkSize) {
+            int to = Math.min(count, from + chunkSize);
+            List<Long> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                chunk.add(keys[i]);
+            }
+            query.load(chunk, this::add);
+        }
+    }
+
+    private void add(long key, V value) {
+        List<V> values = loaded.get(key);
+        if (values == null) {
+            values = new ArrayList<>(4);
+            loaded.put(key, values);
+        }
+        values.add(value);
+    }
+}
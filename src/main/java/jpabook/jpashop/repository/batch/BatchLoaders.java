@@ -0,0 +1,21 @@
+package jpabook.jpashop.repository.batch;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * BatchLoader를 만든다. 청크 크기를 공유한다.
+ * - jpashop.batch-loader.chunk-size: IN 절 하나에 넣는 키 수(너무 크면 DB가 IN 목록 파싱/계획에 시간을 쓴다)
+ */
+@Component
+public class BatchLoaders {
+    private final int chunkSize;
+
+    public BatchLoaders(@Value("${jpashop.batch-loader.chunk-size:1000}") int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public <V> BatchLoader<V> create(BatchLoader.ChunkQuery<V> query, int expectedKeys) {
+        return new BatchLoader<>(query, chunkSize, expectedKeys);
+    }
+}
@@ -0,0 +1,30 @@
+package jpabook.jpashop.repository.batch;
+
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+
+/**
+ * DTO 조립에 자주 쓰는 키별 조회(BatchLoader) 모음
+ * 조립할 때마다 새로 만들어 쓴다. expectedKeys는 내부 맵 크기를 미리 잡는 데만 쓴다.
+ * ex) 주문 -> 주문상품
+ */
+@Repository
+@RequiredArgsConstructor
+public class BatchLookups {
+    private final EntityManager em;
+    private final BatchLoaders batchLoaders;
+
+    public BatchLoader<OrderItemQueryDto> orderItems(int expectedKeys) {
+        return batchLoaders.create((orderIds, sink) -> em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                                " from OrderItem oi" +
+                                " join oi.item i" +
+                                " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList()
+                .forEach(dto -> sink.accept(dto.getOrderId(), dto)), expectedKeys);
+    }
+}
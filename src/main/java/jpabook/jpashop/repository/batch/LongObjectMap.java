@@ -0,0 +1,102 @@
+package jpabook.jpashop.repository.batch;
+
+/**
+ * long 키 해시맵(오픈 어드레싱, 선형 탐사)
+ * HashMap<Long, V>와 달리 키를 박싱하지 않고 Entry 객체도 만들지 않는다.(id -> DTO 목록 매핑용)
+ * 삭제는 지원하지 않는다.
+ */
+public class LongObjectMap<V> {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    private boolean hasZeroKey; // 0은 빈 슬롯 표시로 쓰므로 따로 저장한다.
+    private V zeroValue;
+
+    public LongObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : null;
+        }
+        int index = indexOf(key);
+        return keys[index] == key ? (V) values[index] : null;
+    }
+
+    public V put(long key, V value) {
+        if (key == 0) {
+            V old = zeroValue;
+            if (!hasZeroKey) {
+                size++;
+            }
+            hasZeroKey = true;
+            zeroValue = value;
+            return old;
+        }
+        int index = indexOf(key);
+        @SuppressWarnings("unchecked")
+        V old = (V) values[index];
+        if (keys[index] != key) {
+            keys[index] = key;
+            if (++size > keys.length * LOAD_FACTOR) {
+                values[index] = value;
+                grow();
+                return null;
+            }
+        }
+        values[index] = value;
+        return old;
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZeroKey : keys[indexOf(key)] == key;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int indexOf(long key) {
+        int index = mix(key) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new Object[oldValues.length << 1];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    // 연속된 id가 한 곳에 몰리지 않도록 섞는다.
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "LongObjectMap{size=" + size + "}";
+    }
+}
@@ -0,0 +1,16 @@
+package jpabook.jpashop.repository.category;
+
+import lombok.Data;
+
+@Data
+public class CategoryItemDto {
+    private Long itemId;
+    private String name;
+    private int price;
+
+    public CategoryItemDto(Long itemId, String name, int price) {
+        this.itemId = itemId;
+        this.name = name;
+        this.price = price;
+    }
+}
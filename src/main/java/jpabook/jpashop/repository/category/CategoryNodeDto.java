@@ -0,0 +1,16 @@
+package jpabook.jpashop.repository.category;
+
+import lombok.Data;
+
+@Data
+public class CategoryNodeDto {
+    private Long id;
+    private String name;
+    private Long parentId; // 루트면 null
+
+    public CategoryNodeDto(Long id, String name, Long parentId) {
+        this.id = id;
+        this.name = name;
+        this.parentId = parentId;
+    }
+}
@@ -0,0 +1,12 @@
+package jpabook.jpashop.repository.category;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CategorySubtreeCounts {
+    private Long categoryId;
+    private long descendants; // 하위 카테고리 수(자기 자신 제외)
+    private long items; // 하위 트리 전체 상품 수(자기 자신 포함, 중복 제외)
+}
@@ -0,0 +1,160 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.repository.batch.BatchLoader;
+import jpabook.jpashop.repository.batch.BatchLoaders;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 요청한 필드만 조회하는 주문 조회(sparse fieldsets, /api/v7/orders?fields=orderId,orderStatus,orderItems.itemName)
+ * - 요청한 필드에 해당하는 컬럼만 select 하고, 필요 없는 조인은 하지 않는다.(address가 없으면 delivery 조인 X, name이 없으면 member 조인 X)
+ * - orderItems.* 필드가 있으면 주문 id로 주문상품을 IN 쿼리로 따로 조회한다.(V5와 같은 방식, BatchLoader)
+ * - 결과는 필드 이름 -> 값 Map, 주문 필드는 요청한 순서대로 내려가고 orderItems는 요청한 위치와 상관없이 항상 마지막에 붙는다.
+ *
+ * 필드 목록은 아래 정의된 것만 허용하고 JPQL에는 정의된 식만 들어간다.(요청 문자열이 쿼리에 그대로 들어가지 않는다)
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderFieldsQueryRepository {
+    private static final String ITEMS_PREFIX = "orderItems.";
+    private static final String ORDER_ID_KEY = "__orderId"; // 주문상품 매칭용, 응답에서는 뺀다.
+
+    // 필드 이름 -> JPQL 식, 필요한 조인
+    private static final Map<String, Field> ORDER_FIELDS = new LinkedHashMap<>();
+    private static final Map<String, Field> ITEM_FIELDS = new LinkedHashMap<>();
+
+    static {
+        ORDER_FIELDS.put("orderId", new Field("o.id", null));
+        ORDER_FIELDS.put("name", new Field("m.name", " join o.member m"));
+        ORDER_FIELDS.put("orderDate", new Field("o.orderDate", null));
+        ORDER_FIELDS.put("orderStatus", new Field("o.status", null));
+        ORDER_FIELDS.put("address", new Field("d.address", " join o.delivery d"));
+        ORDER_FIELDS.put("totalPrice", new Field("(select sum(t.orderPrice * t.count) from OrderItem t where t.order = o)", null));
+
+        ITEM_FIELDS.put("itemName", new Field("i.name", " join oi.item i"));
+        ITEM_FIELDS.put("orderPrice", new Field("oi.orderPrice", null));
+        ITEM_FIELDS.put("count", new Field("oi.count", null));
+    }
+
+    private final EntityManager em;
+    private final BatchLoaders batchLoaders;
+
+    /**
+     * @param fields 쉼표로 구분한 필드 목록, 없으면 전체 필드
+     */
+    public List<Map<String, Object>> findOrders(String fields, int offset, int limit) {
+        List<String> orderFields = new ArrayList<>();
+        List<String> itemFields = new ArrayList<>();
+        parse(fields, orderFields, itemFields);
+
+        List<Map<String, Object>> orders = findOrderRows(orderFields, !itemFields.isEmpty(), offset, limit);
+        if (itemFields.isEmpty()) {
+            return orders;
+        }
+
+        BatchLoader<Map<String, Object>> orderItems = batchLoaders.create(
+                (orderIds, sink) -> findOrderItemRows(itemFields, orderIds, sink), orders.size());
+        orders.forEach(o -> orderItems.register((Long) o.get(ORDER_ID_KEY)));
+        orders.forEach(o -> o.put("orderItems", orderItems.get((Long) o.remove(ORDER_ID_KEY))));
+        return orders;
+    }
+
+    private List<Map<String, Object>> findOrderRows(List<String> orderFields, boolean withItems, int offset, int limit) {
+        StringBuilder select = new StringBuilder("select o.id");
+        StringBuilder from = new StringBuilder(" from Order o");
+        for (String name : orderFields) {
+            Field field = ORDER_FIELDS.get(name);
+            select.append(", ").append(field.expression);
+            if (field.join != null && from.indexOf(field.join) < 0) {
+                from.append(field.join);
+            }
+        }
+
+        List<?> rows = em.createQuery(select.append(from).append(" order by o.id").toString())
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] values = row instanceof Object[] ? (Object[]) row : new Object[]{row};
+            Map<String, Object> order = new LinkedHashMap<>();
+            if (withItems) {
+                order.put(ORDER_ID_KEY, values[0]);
+            }
+            for (int i = 0; i < orderFields.size(); i++) {
+                order.put(orderFields.get(i), values[i + 1]);
+            }
+            result.add(order);
+        }
+        return result;
+    }
+
+    private void findOrderItemRows(List<String> itemFields, List<Long> orderIds, BatchLoader.Sink<Map<String, Object>> sink) {
+        StringBuilder select = new StringBuilder("select oi.order.id");
+        StringBuilder from = new StringBuilder(" from OrderItem oi");
+        for (String name : itemFields) {
+            Field field = ITEM_FIELDS.get(name);
+            select.append(", ").append(field.expression);
+            if (field.join != null && from.indexOf(field.join) < 0) {
+                from.append(field.join);
+            }
+        }
+
+        List<Object[]> rows = em.createQuery(select.append(from).append(" where oi.order.id in :orderIds order by oi.id").toString(), Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+        for (Object[] row : rows) {
+            Map<String, Object> orderItem = new LinkedHashMap<>();
+            for (int i = 0; i < itemFields.size(); i++) {
+                orderItem.put(itemFields.get(i), row[i + 1]);
+            }
+            sink.accept((Long) row[0], orderItem);
+        }
+    }
+
+    private void parse(String fields, List<String> orderFields, List<String> itemFields) {
+        if (!StringUtils.hasText(fields)) {
+            orderFields.addAll(ORDER_FIELDS.keySet());
+            itemFields.addAll(ITEM_FIELDS.keySet());
+            return;
+        }
+        for (String token : fields.split(",")) {
+            String name = token.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (name.equals("orderItems")) {
+                ITEM_FIELDS.keySet().stream().filter(f -> !itemFields.contains(f)).forEach(itemFields::add);
+            } else if (name.startsWith(ITEMS_PREFIX) && ITEM_FIELDS.containsKey(name.substring(ITEMS_PREFIX.length()))) {
+                String itemField = name.substring(ITEMS_PREFIX.length());
+                if (!itemFields.contains(itemField)) {
+                    itemFields.add(itemField);
+                }
+            } else if (ORDER_FIELDS.containsKey(name)) {
+                if (!orderFields.contains(name)) {
+                    orderFields.add(name);
+                }
+            } else {
+                throw new IllegalArgumentException("지원하지 않는 필드입니다. field=" + name);
+            }
+        }
+    }
+
+    private static class Field {
+        private final String expression;
+        private final String join;
+
+        Field(String expression, String join) {
+            this.expression = expression;
+            this.join = join;
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package jpabook.jpashop.repository.order.query;
 
+import jpabook.jpashop.repository.batch.BatchLoader;
+import jpabook.jpashop.repository.batch.BatchLookups;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final EntityManager em;
+    private final BatchLookups batchLookups;
 
     /**
      * 컬렉션은 별도로 조회
@@ -32,41 +42,23 @@ public class OrderQueryRepository {
 
     /**
      * V4를 최적화한 버전(V5)에 쓰이는 메서드
-     * Query: 루트 1번, 컬렉션 1번
+     * Query: 루트 1번, 컬렉션 1번(주문이 jpashop.batch-loader.chunk-size 보다 많으면 청크 수만큼 IN 쿼리)
      * 데이터를 한꺼번에 처리할 때 많이 사용하는 방식
      */
     public List<OrderQueryDto> findAllByDto_optimization() {
         // 루트 조회(toOne(OneToOne,ManyToOne) 코드를 한 번에 조회)
         List<OrderQueryDto> result = findOrders();
 
-        // 먼저 조회한 order의 id List와 IN 쿼리를 사용해 orderItem 컬렉션을 한 번에 조회하여 Map 형식으로 변환
-        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(result));
+        // 먼저 조회한 order의 id를 등록해두고, 처음 꺼낼 때 IN 쿼리로 orderItem 컬렉션을 한 번에 조회한다.
+        // 키별로 묶는 것은 BatchLoader가 long 키 맵으로 한다.(id 박싱, groupingBy 중간 객체 없음)
+        BatchLoader<OrderItemQueryDto> orderItems = batchLookups.orderItems(result.size());
+        result.forEach(o -> orderItems.register(o.getOrderId()));
 
         // 루프를 돌면서 컬렉션 추가(추가 쿼리 실행 X)
-        // 위에서 Map 형식으로 받아온 이유는 매칭 성능 향상(O(1))을 위해서
-        result.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+        result.forEach(o -> o.setOrderItems(orderItems.get(o.getOrderId())));
         return result;
     }
 
-    private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                                " from OrderItem oi" +
-                                " join oi.item i" +
-                                " where oi.order.id in :orderIds", OrderItemQueryDto.class)
-                .setParameter("orderIds", orderIds)
-                .getResultList();
-
-        return orderItems.stream()
-                .collect(Collectors.groupingBy(orderItemQueryDto -> orderItemQueryDto.getOrderId()));
-    }
-
-    private List<Long> toOrderIds(List<OrderQueryDto> result) {
-        return result.stream()
-                .map(o -> o.getOrderId())
-                .collect(Collectors.toList());
-    }
-
     /**
      * 1:N 관계인 orderItems 조회회
      */
@@ -94,14 +86,99 @@ public class OrderQueryRepository {
     }
 
 
-    public List<OrderFlatDto> findAllByDto_flat() {
+    /**
+     * 전체 주문 스트리밍 조회(export 용)
+     * - 플랫 조인 결과를 List로 모으지 않고 order id 순서로 한 줄씩 읽는다.(JDBC fetch size 만큼만 메모리에 올라온다)
+     * - 완성된 주문마다 consumer로 넘긴다.(mergeByOrder)
+     * - DTO 조회라 영속성 컨텍스트에 엔티티가 쌓이지 않는다. 메모리에는 fetch size 만큼의 row와 만들고 있는 주문 하나만 있다.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllByDto_flat(Consumer<OrderQueryDto> consumer) {
+        try (Stream<OrderFlatDto> rows = streamFlat()) {
+            mergeByOrder(rows.iterator(), Integer.MAX_VALUE, consumer);
+        }
+    }
+
+    /**
+     * 플랫 조회를 주문 단위로 합쳐서 조회, order id 키셋 페이징
+     * - afterId 이후(null이면 처음부터) 주문을 order id 순으로 maxOrders 개까지
+     * - 먼저 주문 id를 pk 인덱스로 maxOrders 개만 읽고(limit), 그 id 범위의 플랫 row만 조인해서 읽는다.
+     *   플랫 조인에 바로 limit을 걸면 row(주문상품) 기준으로 잘리므로 주문 id를 먼저 정한다.
+     * - 정렬된 row를 한 번만 훑으면서 합치므로 주문당 OrderQueryDto 하나만 만든다.(groupingBy처럼 row마다 키 DTO를 만들지 않는다)
+     */
+    @Transactional(readOnly = true)
+    public List<OrderQueryDto> findAllByDto_flat(Long afterId, int maxOrders) {
+        TypedQuery<Long> idQuery = em.createQuery(
+                        "select o.id from Order o" +
+                                (afterId != null ? " where o.id > :afterId" : "") +
+                                " order by o.id", Long.class)
+                .setMaxResults(maxOrders);
+        if (afterId != null) {
+            idQuery.setParameter("afterId", afterId);
+        }
+        List<Long> orderIds = idQuery.getResultList();
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<OrderFlatDto> rows = em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                                " from Order o" +
+                                " join o.member m" +
+                                " join o.delivery d" +
+                                " join o.orderItems oi" +
+                                " join oi.item i" +
+                                " where o.id between :firstId and :lastId" +
+                                " order by o.id, oi.id", OrderFlatDto.class)
+                .setParameter("firstId", orderIds.get(0))
+                .setParameter("lastId", orderIds.get(orderIds.size() - 1))
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultList();
+
+        List<OrderQueryDto> result = new ArrayList<>(orderIds.size());
+        mergeByOrder(rows.iterator(), maxOrders, result::add);
+        return result;
+    }
+
+    private Stream<OrderFlatDto> streamFlat() {
         return em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
-                        " from Order o" +
-                        " join o.member m" +
-                        " join o.delivery d" +
-                        " join o.orderItems oi" +
-                        " join oi.item i", OrderFlatDto.class
-        ).getResultList();
+                        "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                                " from Order o" +
+                                " join o.member m" +
+                                " join o.delivery d" +
+                                " join o.orderItems oi" +
+                                " join oi.item i" +
+                                " order by o.id, oi.id", OrderFlatDto.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream();
+    }
+
+    /**
+     * order id 순으로 정렬된 플랫 row를 주문 단위로 합친다.
+     * 연속된 row의 order id가 같으면 같은 주문이므로, id가 바뀔 때 이전 주문이 완성된 것이다.
+     * (order_view를 읽는 OrderViewQueryRepository도 같이 쓴다)
+     */
+    static void mergeByOrder(Iterator<OrderFlatDto> rows, int maxOrders, Consumer<OrderQueryDto> consumer) {
+        OrderQueryDto current = null;
+        int orders = 0;
+        while (rows.hasNext()) {
+            OrderFlatDto row = rows.next();
+            if (current == null || !current.getOrderId().equals(row.getOrderId())) {
+                if (current != null) {
+                    consumer.accept(current);
+                }
+                if (++orders > maxOrders) {
+                    return;
+                }
+                current = new OrderQueryDto(row.getOrderId(), row.getName(), row.getOrderDate(),
+                        row.getOrderStatus(), row.getAddress(), new ArrayList<>());
+            }
+            current.getOrderItems().add(new OrderItemQueryDto(row.getOrderId(),
+                    row.getItemName(), row.getOrderPrice(), row.getCount()));
+        }
+        if (current != null) {
+            consumer.accept(current);
+        }
     }
 }
@@ -0,0 +1,57 @@
+package jpabook.jpashop.repository.order.query;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 비정규화 테이블(order_view)로 주문 조회, 조인 없이 테이블 하나만 읽는다.
+ * order_view는 주문상품 단위 row라 V6 플랫 조회와 같은 모양이므로 같은 방식(mergeByOrder)으로 주문 단위로 합친다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderViewQueryRepository {
+
+    private final EntityManager em;
+
+    /**
+     * afterId 이후(null이면 처음부터) 주문을 order id 순으로 maxOrders 개까지
+     * - 먼저 주문 id를 maxOrders 개만 읽고(limit), 그 범위의 row만 읽는다.(둘 다 idx_order_view_order(order_id, order_item_id) 범위 조회)
+     *   row에 바로 limit을 걸면 주문상품 기준으로 잘리므로 주문 id를 먼저 정한다.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderQueryDto> findOrders(Long afterId, int maxOrders) {
+        TypedQuery<Long> idQuery = em.createQuery(
+                        "select distinct v.orderId from OrderView v" +
+                                (afterId != null ? " where v.orderId > :afterId" : "") +
+                                " order by v.orderId", Long.class)
+                .setMaxResults(maxOrders);
+        if (afterId != null) {
+            idQuery.setParameter("afterId", afterId);
+        }
+        List<Long> orderIds = idQuery.getResultList();
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<OrderFlatDto> rows = em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderFlatDto(v.orderId, v.memberName, v.orderDate, v.status, v.address, v.itemName, v.orderPrice, v.count)" +
+                                " from OrderView v" +
+                                " where v.orderId between :firstId and :lastId" +
+                                " order by v.orderId, v.orderItemId", OrderFlatDto.class)
+                .setParameter("firstId", orderIds.get(0))
+                .setParameter("lastId", orderIds.get(orderIds.size() - 1))
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultList();
+
+        List<OrderQueryDto> result = new ArrayList<>(orderIds.size());
+        OrderQueryRepository.mergeByOrder(rows.iterator(), maxOrders, result::add);
+        return result;
+    }
+}
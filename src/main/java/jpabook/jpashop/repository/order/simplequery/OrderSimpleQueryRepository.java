@@ -1,5 +1,6 @@
 package jpabook.jpashop.repository.order.simplequery;
 
+import jpabook.jpashop.cache.OrderQueryCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
@@ -15,8 +16,16 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderSimpleQueryRepository {
     private final EntityManager em;
+    private final OrderQueryCache orderQueryCache;
 
+    /**
+     * 대시보드에서 계속 같은 결과를 조회하므로 결과를 캐시한다.(주문/취소가 커밋되면 무효화)
+     */
     public List<OrderSimpleQueryDto> findOrderDtos() {
+        return orderQueryCache.get(OrderQueryCache.key("findOrderDtos"), this::selectOrderDtos);
+    }
+
+    private List<OrderSimpleQueryDto> selectOrderDtos() {
         return em.createQuery("select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id,m.name,o.orderDate,o.status,m.address) from Order o" +
                         " join o.member m" +
                         " join o.delivery d", OrderSimpleQueryDto.class)
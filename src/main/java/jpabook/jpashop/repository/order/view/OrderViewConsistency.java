@@ -0,0 +1,18 @@
+package jpabook.jpashop.repository.order.view;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class OrderViewConsistency {
+    private long sourceRows; // order_item
+    private long viewRows; // order_view
+    private long missing;
+    private long orphaned;
+    private long stale;
+
+    public boolean isConsistent() {
+        return missing == 0 && orphaned == 0 && stale == 0;
+    }
+}
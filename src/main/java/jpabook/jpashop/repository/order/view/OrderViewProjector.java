@@ -0,0 +1,115 @@
+package jpabook.jpashop.repository.order.view;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.view.OrderView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 주문 읽기 모델(order_view) 갱신
+ * 원본을 바꾸는 서비스 메서드(주문, 취소, 이름 변경)가 같은 트랜잭션 안에서 호출하므로
+ * 원본과 order_view는 같이 커밋되거나 같이 롤백된다.(커밋된 뒤에 따로 반영하면 그 사이에 실패했을 때 어긋난다)
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderViewProjector {
+    private final EntityManager em;
+
+    /**
+     * 주문 생성, 주문상품 수만큼 insert(jdbc batch로 나간다)
+     */
+    public void orderCreated(Order order) {
+        for (OrderItem orderItem : order.getOrderItems()) {
+            em.persist(OrderView.createOrderView(order, orderItem));
+        }
+    }
+
+    public void orderStatusChanged(Long orderId, OrderStatus status) {
+        em.createQuery("update OrderView v set v.status = :status where v.orderId = :orderId")
+                .setParameter("status", status)
+                .setParameter("orderId", orderId)
+                .executeUpdate();
+    }
+
+    /**
+     * 상품 이름 변경, 그 상품을 주문한 row 전체(idx_order_view_item)
+     */
+    public void itemRenamed(Long itemId, String name) {
+        em.createQuery("update OrderView v set v.itemName = :name where v.itemId = :itemId")
+                .setParameter("name", name)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
+
+    /**
+     * 회원 이름 변경, 그 회원의 주문 row 전체(idx_order_view_member)
+     */
+    public void memberRenamed(Long memberId, String name) {
+        em.createQuery("update OrderView v set v.memberName = :name where v.memberId = :memberId")
+                .setParameter("name", name)
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    /**
+     * 원본 테이블로 order_view를 다시 만든다.(처음 도입할 때, 어긋났을 때)
+     * 호출한 트랜잭션 안에서 지우고 다시 넣으므로 커밋 전까지 다른 트랜잭션은 이전 내용을 본다.
+     */
+    public int rebuild() {
+        em.flush();
+        em.createNativeQuery("delete from order_view").executeUpdate();
+        int rows = em.createNativeQuery(
+                        "insert into order_view (order_item_id, order_id, member_id, member_name, order_date, status," +
+                                " city, street, zipcode, item_id, item_name, order_price, count)" +
+                                " select oi.order_item_id, o.order_id, m.member_id, m.name, o.order_date, o.status," +
+                                " d.city, d.street, d.zipcode, i.item_id, i.name, oi.order_price, oi.count" +
+                                " from order_item oi" +
+                                " join orders o on o.order_id = oi.order_id" +
+                                " join member m on m.member_id = o.member_id" +
+                                " join delivery d on d.delivery_id = o.delivery_id" +
+                                " join item i on i.item_id = oi.item_id")
+                .executeUpdate();
+        em.clear(); // 영속성 컨텍스트에 남은 OrderView는 지워진 row다.
+        return rows;
+    }
+
+    /**
+     * 원본과 order_view 비교
+     * - missing: 원본에는 있는데 order_view에 없는 주문상품
+     * - orphaned: order_view에만 있는 row
+     * - stale: 둘 다 있지만 값이 다른 row
+     * 쿼리 사이에 들어온 주문 때문에 일시적으로 어긋나 보일 수 있으므로 어긋나면 한 번 더 확인하고 판단한다.
+     */
+    public OrderViewConsistency check() {
+        long sourceRows = count("select count(*) from order_item");
+        long viewRows = count("select count(*) from order_view");
+        long missing = count("select count(*) from order_item oi" +
+                " left join order_view v on v.order_item_id = oi.order_item_id" +
+                " where v.order_item_id is null");
+        long orphaned = count("select count(*) from order_view v" +
+                " left join order_item oi on oi.order_item_id = v.order_item_id" +
+                " where oi.order_item_id is null");
+        long stale = count("select count(*) from order_view v" +
+                " join order_item oi on oi.order_item_id = v.order_item_id" +
+                " join orders o on o.order_id = oi.order_id" +
+                " join member m on m.member_id = o.member_id" +
+                " join delivery d on d.delivery_id = o.delivery_id" +
+                " join item i on i.item_id = oi.item_id" +
+                " where v.order_id <> o.order_id" +
+                " or v.status is distinct from o.status" +
+                " or v.member_id <> m.member_id or v.member_name is distinct from m.name" +
+                " or v.order_date is distinct from o.order_date" +
+                " or v.city is distinct from d.city or v.street is distinct from d.street or v.zipcode is distinct from d.zipcode" +
+                " or v.item_id <> i.item_id or v.item_name is distinct from i.name" +
+                " or v.order_price <> oi.order_price or v.count <> oi.count");
+        return new OrderViewConsistency(sourceRows, viewRows, missing, orphaned, stale);
+    }
+
+    private long count(String sql) {
+        return ((Number) em.createNativeQuery(sql).getSingleResult()).longValue();
+    }
+}
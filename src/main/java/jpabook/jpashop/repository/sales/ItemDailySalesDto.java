@@ -0,0 +1,20 @@
+package jpabook.jpashop.repository.sales;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class ItemDailySalesDto {
+    private Long itemId;
+    private LocalDate salesDate;
+    private long revenue;
+    private long units;
+
+    public ItemDailySalesDto(Long itemId, LocalDate salesDate, Long revenue, Long units) {
+        this.itemId = itemId;
+        this.salesDate = salesDate;
+        this.revenue = revenue;
+        this.units = units;
+    }
+}
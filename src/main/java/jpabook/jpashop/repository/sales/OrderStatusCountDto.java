@@ -0,0 +1,15 @@
+package jpabook.jpashop.repository.sales;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+@Data
+public class OrderStatusCountDto {
+    private OrderStatus status;
+    private long orderCount;
+
+    public OrderStatusCountDto(OrderStatus status, Long orderCount) {
+        this.status = status;
+        this.orderCount = orderCount;
+    }
+}
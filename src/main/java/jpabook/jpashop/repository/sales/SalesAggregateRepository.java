@@ -0,0 +1,206 @@
+package jpabook.jpashop.repository.sales;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.sales.ItemDailySalesId;
+import jpabook.jpashop.domain.sales.OrderStatusCountId;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 매출 집계 테이블(item_daily_sales, order_status_count) 갱신/조회
+ * 갱신은 호출한 트랜잭션(주문, 취소) 안에서 update 한 번으로 더한다.(set x = x + :delta)
+ * 해당 row가 아직 없으면(그 날 그 상품의 첫 주문) 0인 row를 insert 하고 다시 update 한다.
+ * - 동시에 첫 주문이 들어오면 한 쪽은 pk 충돌이 나므로 insert는 savepoint 안에서 하고, 충돌하면 savepoint로 되돌려서 주문은 그대로 진행한다.
+ *   (JPA로 insert하면 예외가 나는 순간 트랜잭션이 rollback-only가 되므로 같은 커넥션에서 jdbc로 직접 한다)
+ * - 별도 트랜잭션(REQUIRES_NEW)으로 만들면 주문마다 커넥션을 하나 더 잡게 되어, 동시 주문이 몰리면 커넥션 풀이 바닥나 서로 기다리게 된다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SalesAggregateRepository {
+    public static final int SLOTS = 8;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 주문 생성: 상품별 매출/수량 더하기, ORDER 상태 주문 수 + 1
+     */
+    public void recordOrder(Order order) {
+        recordOrders(List.of(order));
+    }
+
+    /**
+     * 여러 주문을 (상품, 날짜)별로 합쳐서 row당 update 한 번으로 반영한다.(OrderService.orders)
+     */
+    public void recordOrders(List<Order> orders) {
+        Map<ItemDailySalesId, long[]> sales = new HashMap<>();
+        int slot = slot();
+        for (Order order : orders) {
+            LocalDate salesDate = order.getOrderDate().toLocalDate();
+            for (OrderItem orderItem : order.getOrderItems()) {
+                long[] sum = sales.computeIfAbsent(new ItemDailySalesId(orderItem.getItem().getId(), salesDate, slot), k -> new long[2]);
+                sum[0] += orderItem.getTotalPrice();
+                sum[1] += orderItem.getCount();
+            }
+        }
+        sales.forEach((id, sum) -> addItemSales(id, sum[0], sum[1]));
+        addOrderCount(new OrderStatusCountId(OrderStatus.ORDER, slot), orders.size());
+    }
+
+    /**
+     * 주문 취소: 주문 날짜의 매출/수량에서 빼고, ORDER - 1, CANCEL + 1
+     */
+    public void recordCancel(Order order) {
+        int slot = slot();
+        LocalDate salesDate = order.getOrderDate().toLocalDate();
+        for (OrderItem orderItem : order.getOrderItems()) {
+            addItemSales(new ItemDailySalesId(orderItem.getItem().getId(), salesDate, slot),
+                    -orderItem.getTotalPrice(), -orderItem.getCount());
+        }
+        addOrderCount(new OrderStatusCountId(OrderStatus.ORDER, slot), -1);
+        addOrderCount(new OrderStatusCountId(OrderStatus.CANCEL, slot), 1);
+    }
+
+    /**
+     * 기간(from ~ to, 날짜 포함)의 상품별 일 매출, slot은 합쳐서 돌려준다. itemId가 없으면 전체 상품
+     */
+    public List<ItemDailySalesDto> findItemDailySales(LocalDate from, LocalDate to, Long itemId) {
+        TypedQuery<ItemDailySalesDto> query = em.createQuery(
+                        "select new jpabook.jpashop.repository.sales.ItemDailySalesDto(s.id.itemId, s.id.salesDate, sum(s.revenue), sum(s.units))" +
+                                " from ItemDailySales s" +
+                                " where s.id.salesDate between :from and :to" +
+                                (itemId != null ? " and s.id.itemId = :itemId" : "") +
+                                " group by s.id.itemId, s.id.salesDate" +
+                                " order by s.id.salesDate, s.id.itemId", ItemDailySalesDto.class)
+                .setParameter("from", from)
+                .setParameter("to", to);
+        if (itemId != null) {
+            query.setParameter("itemId", itemId);
+        }
+        return query.getResultList();
+    }
+
+    public List<OrderStatusCountDto> findOrderStatusCounts() {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.sales.OrderStatusCountDto(c.id.status, sum(c.orderCount))" +
+                                " from OrderStatusCount c" +
+                                " group by c.id.status", OrderStatusCountDto.class)
+                .getResultList();
+    }
+
+    /**
+     * orders, order_item 전체로 집계 테이블을 다시 만든다.(백필, 호출한 쪽 트랜잭션 안에서)
+     * 주문이 들어오는 중에 돌리면 그 사이 주문이 빠지거나 두 번 들어갈 수 있으므로 주문을 막은 상태에서 돌린다.
+     */
+    public void rebuild() {
+        em.createNativeQuery("delete from item_daily_sales").executeUpdate();
+        em.createNativeQuery("delete from order_status_count").executeUpdate();
+        em.createNativeQuery(
+                        "insert into item_daily_sales (item_id, sales_date, slot, revenue, units)" +
+                                " select oi.item_id, cast(o.order_date as date), 0, sum(oi.order_price * oi.count), sum(oi.count)" +
+                                " from order_item oi" +
+                                " join orders o on o.order_id = oi.order_id" +
+                                " where o.status = 'ORDER'" +
+                                " group by oi.item_id, cast(o.order_date as date)")
+                .executeUpdate();
+        em.createNativeQuery(
+                        "insert into order_status_count (status, slot, order_count)" +
+                                " select o.status, 0, count(*) from orders o group by o.status")
+                .executeUpdate();
+    }
+
+    private void addItemSales(ItemDailySalesId id, long revenue, long units) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (updateItemSales(id, revenue, units) > 0) {
+                return;
+            }
+            insertIfAbsent("insert into item_daily_sales (item_id, sales_date, slot, revenue, units) values (?, ?, ?, 0, 0)",
+                    id.getItemId(), Date.valueOf(id.getSalesDate()), id.getSlot());
+        }
+        throw new IllegalStateException("매출 집계를 갱신하지 못했습니다. " + id);
+    }
+
+    private int updateItemSales(ItemDailySalesId id, long revenue, long units) {
+        return em.createQuery(
+                        "update ItemDailySales s set s.revenue = s.revenue + :revenue, s.units = s.units + :units" +
+                                " where s.id.itemId = :itemId and s.id.salesDate = :salesDate and s.id.slot = :slot")
+                .setParameter("revenue", revenue)
+                .setParameter("units", units)
+                .setParameter("itemId", id.getItemId())
+                .setParameter("salesDate", id.getSalesDate())
+                .setParameter("slot", id.getSlot())
+                .executeUpdate();
+    }
+
+    private void addOrderCount(OrderStatusCountId id, long delta) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (updateOrderCount(id, delta) > 0) {
+                return;
+            }
+            insertIfAbsent("insert into order_status_count (status, slot, order_count) values (?, ?, 0)",
+                    id.getStatus().name(), id.getSlot());
+        }
+        throw new IllegalStateException("주문 수 집계를 갱신하지 못했습니다. " + id);
+    }
+
+    private int updateOrderCount(OrderStatusCountId id, long delta) {
+        return em.createQuery(
+                        "update OrderStatusCount c set c.orderCount = c.orderCount + :delta" +
+                                " where c.id.status = :status and c.id.slot = :slot")
+                .setParameter("delta", delta)
+                .setParameter("status", id.getStatus())
+                .setParameter("slot", id.getSlot())
+                .executeUpdate();
+    }
+
+    /**
+     * 현재 트랜잭션의 커넥션에서 savepoint를 잡고 insert, pk가 충돌하면(다른 트랜잭션이 먼저 만들었다) savepoint로 되돌린다.
+     */
+    private void insertIfAbsent(String sql, Object... args) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            Savepoint savepoint = con.setSavepoint();
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for (int i = 0; i < args.length; i++) {
+                    ps.setObject(i + 1, args[i]);
+                }
+                ps.executeUpdate();
+                con.releaseSavepoint(savepoint);
+            } catch (SQLException e) {
+                if (!isDuplicateKey(sql, e)) {
+                    throw e;
+                }
+                con.rollback(savepoint);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * unique(pk) 위반인지는 DB마다 SQLState/에러 코드가 달라서(H2 23505, MySQL 23000 + 1062) 스프링 예외 변환에 맡긴다.
+     */
+    private boolean isDuplicateKey(String sql, SQLException e) {
+        return jdbcTemplate.getExceptionTranslator().translate("insertIfAbsent", sql, e) instanceof DuplicateKeyException;
+    }
+
+    private int slot() {
+        return ThreadLocalRandom.current().nextInt(SLOTS);
+    }
+}
@@ -0,0 +1,416 @@
+package jpabook.jpashop.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 상품 역색인(토큰 -> 그 토큰이 들어있는 상품), DB에 접근하지 않는다.
+ * - 상품마다 문서 번호(docId)를 매기고 토큰마다 문서 번호 배열(Postings)을 둔다.
+ *   문서 번호는 넣을 때마다 1씩 늘어나므로 배열 뒤에 붙이기만 해도 오름차순이 유지된다.(교집합을 이진 탐색으로)
+ * - 상품이 수정되면 새 문서 번호로 다시 넣고 이전 문서는 지운 것으로 표시만 한다. 지운 문서가 절반을 넘으면 번호를 다시 매긴다.
+ * - 토큰 사전은 정렬된 맵이라 접두어로 시작하는 토큰을 범위 조회로 찾는다.(입력 중인 검색어)
+ *   접두어 하나가 MAX_PREFIX_TERMS 개보다 많은 토큰으로 펼쳐지면(넓은 접두어) 펼치지 않고,
+ *   다른 검색어 토큰으로 찾은 후보 상품의 토큰을 직접 확인한다.(빠지는 상품 없음)
+ *   검색어 토큰이 모두 넓은 접두어일 때만 상품이 많은 토큰부터 MAX_PREFIX_TERMS 개를 쓰고 결과에 truncated를 표시한다.
+ *   (접두어 범위 전체를 훑어야 하므로 고른 토큰은 다음 쓰기 전까지 캐시한다)
+ * - 후보마다 문서를 따라가지 않도록 정렬 키(이름 길이, 상품 id)와 문서의 토큰(packedTerms)은 문서 번호로 바로 읽는 배열에 따로 둔다.
+ * - 검색어 토큰은 모두 들어있어야 하고(AND), 토큰마다 정확히 일치 > 접두어 일치, 이름/ISBN > 저자/아티스트/감독/배우 순으로 점수를 준다.
+ * - 읽기는 동시에, 쓰기는 하나씩(ReentrantReadWriteLock)
+ */
+public class InvertedItemIndex {
+    static final int MIN_PREFIX_LENGTH = 2; // 한 글자 접두어는 토큰 사전 대부분을 훑게 된다.
+    static final int MAX_PREFIX_TERMS = 128; // 접두어 하나가 펼쳐지는 토큰 수 상한(후보 점수 계산이 토큰 수에 비례한다)
+    private static final int COMPACT_MIN_DELETED = 10_000;
+    private static final int MAX_CACHED_PREFIXES = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> docIds = new HashMap<>(); // itemId -> 현재 문서 번호
+    private TreeMap<String, Postings> terms = new TreeMap<>();
+    private ArrayList<ItemDocument> docs = new ArrayList<>(); // 문서 번호 -> 문서(지운 문서는 null)
+    private int[] nameLengths = new int[1024]; // 문서 번호 -> 이름 길이
+    private long[] itemIds = new long[1024]; // 문서 번호 -> 상품 id
+    private char[][] packedTerms = new char[1024][]; // 문서 번호 -> ItemDocument.packedTerms
+    private int deleted;
+    private final Map<String, List<Postings>> largestPrefixTerms = new ConcurrentHashMap<>(); // 넓은 접두어 -> expandLargest 결과
+
+    public void put(ItemDocument document) {
+        putAll(Collections.singletonList(document));
+    }
+
+    public void putAll(Collection<ItemDocument> documents) {
+        lock.writeLock().lock();
+        try {
+            largestPrefixTerms.clear(); // 토큰별 상품 수가 바뀐다.
+            for (ItemDocument document : documents) {
+                add(document);
+            }
+            if (deleted >= COMPACT_MIN_DELETED && deleted > docs.size() / 2) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 점수 순으로 offset부터 limit 개, total은 조건에 맞는 전체 상품 수
+     * 가장 짧은 토큰 목록을 기준으로 훑으면서 나머지 토큰은 이진 탐색으로 확인하고, 상위 offset + limit 개만 힙에 남긴다.
+     */
+    public ItemSearchResult search(String query, int offset, int limit) {
+        Set<String> tokens = ItemTokenizer.distinctTokens(query);
+        if (tokens.isEmpty()) {
+            return ItemSearchResult.empty();
+        }
+        lock.readLock().lock();
+        try {
+            List<TokenMatch> matches = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                TokenMatch match = match(token);
+                if (match.size == 0 && !match.broad) {
+                    return ItemSearchResult.empty();
+                }
+                matches.add(match);
+            }
+            // 펼친 토큰 중 가장 작은 것이 후보, 넓은 접두어는 후보를 거르는 데만 쓴다.
+            matches.sort(Comparator.<TokenMatch>comparingInt(m -> m.broad ? 1 : 0).thenComparingLong(m -> m.size));
+            boolean truncated = matches.get(0).broad;
+            if (truncated) {
+                expandLargest(matches.get(0));
+            }
+
+            int top = offset + limit;
+            PriorityQueue<Hit> heap = new PriorityQueue<>(top + 1, BEST_FIRST.reversed()); // 맨 앞이 가장 낮은 점수
+            long total = 0;
+            for (long candidate : matches.get(0).collect()) {
+                int docId = (int) (candidate >>> 32);
+                if (docs.get(docId) == null) { // 수정되어 지워진 문서
+                    continue;
+                }
+                int score = (int) candidate;
+                for (int i = 1; i < matches.size() && score > 0; i++) {
+                    TokenMatch match = matches.get(i);
+                    int tokenScore = match.broad ? prefixScore(packedTerms[docId], match.token) : match.score(docId);
+                    score = tokenScore == 0 ? 0 : score + tokenScore;
+                }
+                if (score == 0) {
+                    continue;
+                }
+                total++;
+                if (heap.size() < top) {
+                    heap.add(new Hit(docId, score, nameLengths[docId], itemIds[docId]));
+                } else if (top > 0 && heap.peek().isWorseThan(score, nameLengths[docId], itemIds[docId])) {
+                    heap.poll();
+                    heap.add(new Hit(docId, score, nameLengths[docId], itemIds[docId]));
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(heap);
+            hits.sort(BEST_FIRST);
+            List<ItemHit> page = new ArrayList<>(Math.max(0, hits.size() - offset));
+            for (int i = offset; i < hits.size(); i++) {
+                page.add(ItemHit.of(docs.get(hits.get(i).docId), hits.get(i).score));
+            }
+            return new ItemSearchResult(total, page, truncated);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(ItemDocument document) {
+        Integer old = docIds.get(document.getItemId());
+        if (old != null) {
+            docs.set(old, null);
+            packedTerms[old] = null;
+            deleted++;
+        }
+        int docId = docs.size();
+        docs.add(document);
+        docIds.put(document.getItemId(), docId);
+        if (docId == nameLengths.length) {
+            nameLengths = Arrays.copyOf(nameLengths, docId * 2);
+            itemIds = Arrays.copyOf(itemIds, docId * 2);
+            packedTerms = Arrays.copyOf(packedTerms, docId * 2);
+        }
+        nameLengths[docId] = document.getName() == null ? Integer.MAX_VALUE : document.getName().length();
+        itemIds[docId] = document.getItemId();
+        packedTerms[docId] = document.packedTerms();
+        document.terms().forEach((term, fields) -> terms.computeIfAbsent(term, t -> new Postings()).add(docId, fields));
+    }
+
+    /**
+     * 지운 문서를 빼고 문서 번호를 다시 매긴다.(쓰기 락 안에서)
+     */
+    private void compact() {
+        List<ItemDocument> live = new ArrayList<>(docs.size() - deleted);
+        for (ItemDocument document : docs) {
+            if (document != null) {
+                live.add(document);
+            }
+        }
+        terms = new TreeMap<>();
+        docs = new ArrayList<>(live.size());
+        nameLengths = new int[Math.max(1024, live.size())];
+        itemIds = new long[nameLengths.length];
+        packedTerms = new char[nameLengths.length][];
+        docIds.clear();
+        deleted = 0;
+        for (ItemDocument document : live) {
+            add(document);
+        }
+    }
+
+    /**
+     * 검색어 토큰 하나에 해당하는 토큰 목록: 정확히 일치하는 토큰 + 그 토큰으로 시작하는 토큰
+     * 접두어 토큰이 MAX_PREFIX_TERMS 개를 넘으면 펼치지 않고 broad로 표시한다.(사전을 MAX_PREFIX_TERMS + 1 개까지만 훑는다)
+     */
+    private TokenMatch match(String token) {
+        TokenMatch match = new TokenMatch(token);
+        Postings exact = terms.get(token);
+        if (exact != null) {
+            match.add(exact, true);
+        }
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            List<Postings> prefixed = new ArrayList<>();
+            for (Postings postings : prefixRange(token)) {
+                if (prefixed.size() == MAX_PREFIX_TERMS) {
+                    match.broad = true;
+                    return match;
+                }
+                prefixed.add(postings);
+            }
+            for (Postings postings : prefixed) {
+                match.add(postings, false);
+            }
+        }
+        return match;
+    }
+
+    /**
+     * 넓은 접두어밖에 없을 때, 상품 수(Postings.size)가 큰 접두어 토큰부터 MAX_PREFIX_TERMS 개를 펼친다.
+     * 사전 순으로 앞쪽만 쓰면 뒤쪽 토큰의 상품이 말없이 빠지므로 범위 전체를 훑고 큰 것을 남긴다.
+     * 범위가 수십만 토큰이면 훑는 데만 ms 단위가 걸리므로, 같은 접두어는 다음 쓰기(putAll) 전까지 결과를 다시 쓴다.
+     */
+    private void expandLargest(TokenMatch match) {
+        if (largestPrefixTerms.size() >= MAX_CACHED_PREFIXES) {
+            largestPrefixTerms.clear();
+        }
+        for (Postings postings : largestPrefixTerms.computeIfAbsent(match.token, this::largestTerms)) {
+            match.add(postings, false);
+        }
+    }
+
+    private List<Postings> largestTerms(String token) {
+        PriorityQueue<Postings> largest = new PriorityQueue<>(MAX_PREFIX_TERMS + 1, Comparator.comparingInt(p -> p.size));
+        for (Postings postings : prefixRange(token)) {
+            if (largest.size() < MAX_PREFIX_TERMS) {
+                largest.add(postings);
+            } else if (postings.size > largest.peek().size) {
+                largest.poll();
+                largest.add(postings);
+            }
+        }
+        return new ArrayList<>(largest);
+    }
+
+    private Collection<Postings> prefixRange(String token) {
+        return terms.subMap(token, false, token + Character.MAX_VALUE, false).values();
+    }
+
+    /**
+     * 문서의 토큰 중 검색어 토큰으로 시작하는 것의 점수, 없으면 0(넓은 접두어로 후보를 거를 때)
+     * 후보마다 불리므로 문서의 packedTerms 배열 하나만 훑는다.(토큰 문자열, 맵을 만들지 않는다)
+     * 문서의 토큰은 정렬되어 있으므로 검색어 토큰보다 뒤인 토큰이 나오면 멈춘다.
+     */
+    private static int prefixScore(char[] packed, String token) {
+        int best = 0;
+        for (int position = 0; position < packed.length; ) {
+            int fields = packed[position];
+            int length = packed[position + 1];
+            int start = position + 2;
+            position = start + length;
+
+            int common = Math.min(length, token.length());
+            int i = 0;
+            while (i < common && packed[start + i] == token.charAt(i)) {
+                i++;
+            }
+            if (i == token.length()) {
+                best = Math.max(best, weight(fields, length == token.length()));
+            } else if (i < common && packed[start + i] > token.charAt(i)) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private static int weight(int fields, boolean exact) {
+        int weight = (fields & (ItemDocument.NAME | ItemDocument.ISBN)) != 0 ? 4 : 2;
+        return exact ? weight * 2 : weight;
+    }
+
+    // 점수 높은 순, 같으면 이름이 짧은 순(검색어가 이름의 더 큰 부분), 같으면 상품 id 순
+    private static final Comparator<Hit> BEST_FIRST = Comparator.<Hit>comparingInt(h -> -h.score)
+            .thenComparingInt(h -> h.nameLength)
+            .thenComparingLong(h -> h.itemId);
+
+    private static class Hit {
+        final int docId;
+        final int score;
+        final int nameLength;
+        final long itemId;
+
+        Hit(int docId, int score, int nameLength, long itemId) {
+            this.docId = docId;
+            this.score = score;
+            this.nameLength = nameLength;
+            this.itemId = itemId;
+        }
+
+        /**
+         * BEST_FIRST 순서로 (score, nameLength, itemId)인 후보보다 뒤인지, 힙에 넣기 전에 Hit을 만들지 않고 비교한다.
+         */
+        boolean isWorseThan(int score, int nameLength, long itemId) {
+            if (this.score != score) {
+                return this.score < score;
+            }
+            if (this.nameLength != nameLength) {
+                return this.nameLength > nameLength;
+            }
+            return this.itemId > itemId;
+        }
+    }
+
+    /**
+     * 문서 번호 오름차순 배열, fields는 같은 위치 문서에서 이 토큰이 나온 필드(ItemDocument.NAME | PEOPLE | ISBN)
+     */
+    private static class Postings {
+        int[] docs = new int[4];
+        byte[] fields = new byte[4];
+        int size;
+
+        void add(int docId, int field) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            docs[size] = docId;
+            fields[size] = (byte) field;
+            size++;
+        }
+    }
+
+    private static class TokenMatch {
+        final String token;
+        final List<Postings> postings = new ArrayList<>(4);
+        final List<Boolean> exact = new ArrayList<>(4);
+        long size;
+        boolean broad; // 접두어 토큰이 MAX_PREFIX_TERMS 개보다 많아서 펼치지 않았다.
+
+        TokenMatch(String token) {
+            this.token = token;
+        }
+
+        void add(Postings p, boolean exactMatch) {
+            postings.add(p);
+            exact.add(exactMatch);
+            size += p.size;
+        }
+
+        /**
+         * (docId << 32 | 점수) 배열, 문서 번호 오름차순. 여러 토큰에 같은 문서가 있으면 높은 점수 하나만 남긴다.
+         */
+        long[] collect() {
+            long[] packed = new long[(int) size];
+            int[] runEnds = new int[postings.size()];
+            int n = 0;
+            for (int i = 0; i < postings.size(); i++) {
+                Postings p = postings.get(i);
+                boolean exactMatch = exact.get(i);
+                for (int j = 0; j < p.size; j++) {
+                    packed[n++] = ((long) p.docs[j] << 32) | weight(p.fields[j], exactMatch);
+                }
+                runEnds[i] = n;
+            }
+            if (postings.size() == 1) {
+                return packed; // 이미 정렬되어 있고 중복이 없다.
+            }
+            packed = mergeRuns(packed, runEnds);
+            int unique = 0;
+            for (int i = 0; i < packed.length; i++) {
+                if (i + 1 < packed.length && packed[i] >>> 32 == packed[i + 1] >>> 32) {
+                    continue; // 같은 문서는 마지막(점수가 가장 높은) 것만
+                }
+                packed[unique++] = packed[i];
+            }
+            return Arrays.copyOf(packed, unique);
+        }
+
+        /**
+         * Postings마다 이미 문서 번호 순으로 정렬된 구간(run)이므로 전체를 정렬하지 않고 이웃한 구간끼리 두 개씩 합친다.
+         * (구간 k개, 원소 n개면 n * log k, 넓은 접두어를 펼쳐서 구간이 많을 때 Arrays.sort보다 훨씬 적게 비교한다)
+         */
+        private static long[] mergeRuns(long[] packed, int[] runEnds) {
+            long[] from = packed;
+            long[] to = new long[packed.length];
+            int runs = runEnds.length;
+            while (runs > 1) {
+                int merged = 0;
+                int start = 0;
+                for (int r = 0; r < runs; r += 2) {
+                    int middle = runEnds[r];
+                    int end = r + 1 < runs ? runEnds[r + 1] : middle;
+                    int i = start;
+                    int j = middle;
+                    int k = start;
+                    while (i < middle && j < end) {
+                        to[k++] = from[i] <= from[j] ? from[i++] : from[j++];
+                    }
+                    System.arraycopy(from, i, to, k, middle - i);
+                    System.arraycopy(from, j, to, k + middle - i, end - j);
+                    runEnds[merged++] = end;
+                    start = end;
+                }
+                runs = merged;
+                long[] swap = from;
+                from = to;
+                to = swap;
+            }
+            return from;
+        }
+
+        /**
+         * 이 문서에서 이 검색어 토큰의 점수, 없으면 0
+         */
+        int score(int docId) {
+            int best = 0;
+            for (int i = 0; i < postings.size(); i++) {
+                Postings p = postings.get(i);
+                int index = Arrays.binarySearch(p.docs, 0, p.size, docId);
+                if (index >= 0) {
+                    best = Math.max(best, weight(p.fields[index], exact.get(i)));
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package jpabook.jpashop.search;
+
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.hibernate.Hibernate;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 검색 색인에 넣는 상품 값, 엔티티는 들고 있지 않는다.(트랜잭션이 끝난 뒤에도 색인에 남는다)
+ * 색인할 토큰은 만들 때 한 번만 나눠서 char 배열 하나에 이어붙여 둔다.(packedTerms)
+ * 검색 중에 후보 문서의 토큰을 접두어로 확인할 때 문서마다 맵을 만들거나 토큰 문자열을 하나씩 따라가지 않고 배열 하나만 훑는다.
+ */
+@Getter
+public class ItemDocument {
+    static final int NAME = 1;
+    static final int PEOPLE = 2; // author, artist, director, actor
+    static final int ISBN = 4;
+
+    private final Long itemId;
+    private final String type; // Book, Album, Movie
+    private final String name;
+    private final int price;
+    private final String[] people;
+    private final String isbn;
+    @Getter(AccessLevel.NONE)
+    private final char[] packedTerms; // 토큰마다 [필드(NAME | PEOPLE | ISBN), 길이, 글자...], 토큰 순으로 정렬
+
+    public ItemDocument(Long itemId, String type, String name, int price, String[] people, String isbn) {
+        this.itemId = itemId;
+        this.type = type;
+        this.name = name;
+        this.price = price;
+        this.people = people;
+        this.isbn = isbn;
+
+        Map<String, Integer> terms = tokenize(name, people, isbn);
+        int length = 0;
+        for (String term : terms.keySet()) {
+            length += 2 + term.length();
+        }
+        this.packedTerms = new char[length];
+        int position = 0;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            packedTerms[position++] = (char) term.getValue().intValue();
+            packedTerms[position++] = (char) term.getKey().length();
+            term.getKey().getChars(0, term.getKey().length(), packedTerms, position);
+            position += term.getKey().length();
+        }
+    }
+
+    public static ItemDocument of(Item item) {
+        Item target = (Item) Hibernate.unproxy(item);
+        String[] people = new String[0];
+        String isbn = null;
+        if (target instanceof Book) {
+            Book book = (Book) target;
+            people = new String[]{book.getAuthor()};
+            isbn = book.getIsbn();
+        } else if (target instanceof Album) {
+            people = new String[]{((Album) target).getArtist()};
+        } else if (target instanceof Movie) {
+            Movie movie = (Movie) target;
+            people = new String[]{movie.getDirector(), movie.getActor()};
+        }
+        return new ItemDocument(target.getId(), target.getClass().getSimpleName(), target.getName(), target.getPrice(), people, isbn);
+    }
+
+    char[] packedTerms() {
+        return packedTerms;
+    }
+
+    /**
+     * 색인할 토큰과 그 토큰이 나온 필드(색인에 넣을 때만, 검색 중에는 packedTerms를 바로 읽는다)
+     */
+    Map<String, Integer> terms() {
+        Map<String, Integer> terms = new TreeMap<>();
+        for (int position = 0; position < packedTerms.length; ) {
+            int fields = packedTerms[position];
+            int length = packedTerms[position + 1];
+            terms.put(new String(packedTerms, position + 2, length), fields);
+            position += 2 + length;
+        }
+        return terms;
+    }
+
+    /**
+     * 상품 값에서 색인할 토큰과 그 토큰이 나온 필드(NAME | PEOPLE | ISBN), 토큰 순으로 정렬
+     * ISBN은 '-'로 나뉜 토큰 외에 숫자만 이어붙인 토큰도 넣는다.(978-89-... 와 97889... 둘 다 찾을 수 있게)
+     */
+    private static Map<String, Integer> tokenize(String name, String[] people, String isbn) {
+        Map<String, Integer> terms = new TreeMap<>();
+        ItemTokenizer.tokenize(name, token -> terms.merge(token, NAME, (a, b) -> a | b));
+        for (String person : people) {
+            ItemTokenizer.tokenize(person, token -> terms.merge(token, PEOPLE, (a, b) -> a | b));
+        }
+        if (isbn != null) {
+            ItemTokenizer.tokenize(isbn, token -> terms.merge(token, ISBN, (a, b) -> a | b));
+            String digits = isbn.replaceAll("[^0-9Xx]", "").toLowerCase();
+            if (!digits.isEmpty()) {
+                terms.merge(digits, ISBN, (a, b) -> a | b);
+            }
+        }
+        return terms;
+    }
+}
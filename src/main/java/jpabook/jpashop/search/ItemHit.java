@@ -0,0 +1,18 @@
+package jpabook.jpashop.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ItemHit {
+    private Long itemId;
+    private String type;
+    private String name;
+    private int price;
+    private int score;
+
+    static ItemHit of(ItemDocument document, int score) {
+        return new ItemHit(document.getItemId(), document.getType(), document.getName(), document.getPrice(), score);
+    }
+}
@@ -0,0 +1,110 @@
+package jpabook.jpashop.search;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.SearchIndexNotReadyException;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 상품 검색 색인(InvertedItemIndex) 관리
+ * - 애플리케이션 시작 시 item 테이블 전체로 만든다. 다 만들기 전에는 검색할 수 없다.
+ * - 상품 등록/수정(ItemService)은 커밋된 뒤에 색인에 반영한다.(롤백된 수정이 검색되지 않게)
+ * - 색인을 만드는 도중에 수정된 상품은 나중에 읽은 이전 값으로 덮어쓰지 않는다.
+ *
+ * 색인은 인스턴스 메모리에 있으므로 다른 인스턴스에서 수정한 상품은 재시작(rebuild) 전까지 반영되지 않는다.
+ */
+@Slf4j
+@Component
+public class ItemSearchIndex {
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private final ItemRepository itemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final InvertedItemIndex index = new InvertedItemIndex();
+
+    private final Object buildLock = new Object();
+    private Set<Long> updatedDuringBuild; // 색인을 만드는 동안만, buildLock
+    private volatile boolean ready;
+
+    public ItemSearchIndex(ItemRepository itemRepository, PlatformTransactionManager transactionManager) {
+        this.itemRepository = itemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (buildLock) {
+            updatedDuringBuild = new HashSet<>();
+        }
+        List<ItemDocument> batch = new ArrayList<>(BUILD_BATCH_SIZE);
+        transactionTemplate.executeWithoutResult(status -> itemRepository.streamAll(item -> {
+            batch.add(ItemDocument.of(item));
+            if (batch.size() == BUILD_BATCH_SIZE) {
+                putBuilt(batch);
+                batch.clear();
+            }
+        }));
+        putBuilt(batch);
+        synchronized (buildLock) {
+            updatedDuringBuild = null;
+        }
+        ready = true;
+        log.info("item search index built: {} items, {}ms", index.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 상품 등록/수정을 커밋된 뒤에 색인에 반영한다.(값은 지금 읽어둔다)
+     */
+    public void indexAfterCommit(Item item) {
+        ItemDocument document = ItemDocument.of(item);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update(document);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update(document);
+            }
+        });
+    }
+
+    public ItemSearchResult search(String query, int offset, int limit) {
+        if (!ready) {
+            throw new SearchIndexNotReadyException("상품 검색 색인을 만드는 중입니다.");
+        }
+        return index.search(query, offset, limit);
+    }
+
+    private void update(ItemDocument document) {
+        synchronized (buildLock) {
+            if (updatedDuringBuild != null) {
+                updatedDuringBuild.add(document.getItemId());
+            }
+            index.put(document);
+        }
+    }
+
+    private void putBuilt(List<ItemDocument> documents) {
+        synchronized (buildLock) {
+            if (!updatedDuringBuild.isEmpty()) {
+                documents.removeIf(d -> updatedDuringBuild.contains(d.getItemId()));
+            }
+            index.putAll(documents);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ItemSearchResult {
+    private long total; // 검색어에 맞는 전체 상품 수
+    private List<ItemHit> items; // 점수 순 offset ~ offset + limit
+    private boolean truncated; // 검색어가 모두 넓은 접두어라 일부 토큰으로만 찾았다.(total도 그 안에서 센 값, 검색어를 더 입력하면 정확해진다)
+
+    static ItemSearchResult empty() {
+        return new ItemSearchResult(0, Collections.emptyList(), false);
+    }
+}
@@ -0,0 +1,40 @@
+package jpabook.jpashop.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 글자/숫자가 아닌 문자로 나누고 소문자로 맞춘다.(한글은 글자라 어절 단위로 나뉜다)
+ * 색인과 검색어에 같은 규칙을 써야 한다.
+ */
+final class ItemTokenizer {
+    static final int MAX_TOKEN_LENGTH = 64;
+
+    private ItemTokenizer() {
+    }
+
+    static void tokenize(String text, Consumer<String> consumer) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                String token = text.substring(start, Math.min(i, start + MAX_TOKEN_LENGTH));
+                consumer.accept(token.toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    static Set<String> distinctTokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(text, tokens::add);
+        return tokens;
+    }
+}
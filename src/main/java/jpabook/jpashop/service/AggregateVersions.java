@@ -0,0 +1,61 @@
+package jpabook.jpashop.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 애그리거트(회원, 상품, 주문)별 변경 카운터, 목록 API의 ETag를 만드는 데 쓴다.(VersionETagInterceptor)
+ * - 각 서비스의 쓰기 메서드가 커밋된 뒤에 올린다.
+ * - 카운터는 인스턴스 메모리에 있으므로 시작 시각(epoch)을 같이 넣어서 재시작 전 ETag와 겹치지 않게 한다.
+ * - 인스턴스 한 대일 때만 맞다. 여러 대면 다른 인스턴스에서 커밋한 변경은 이 인스턴스의 카운터를 올리지 않으므로
+ *   같은 인스턴스로만 오는 클라이언트는 계속 옛날 데이터로 304를 받는다.
+ *   그래서 ETag 인터셉터(WebConfig)는 jpashop.etag.enabled=true 일 때만 등록한다.
+ *
+ * 데이터를 커밋한 뒤 카운터를 올리기 전의 짧은 틈에는 이전 ETag로 304가 나갈 수 있다.(다음 조회에서 바로잡힌다)
+ */
+@Component
+public class AggregateVersions {
+    public enum Aggregate {MEMBER, ITEM, ORDER}
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLongArray versions = new AtomicLongArray(Aggregate.values().length);
+
+    /**
+     * 현재 트랜잭션이 커밋되면 올린다.(트랜잭션 밖이면 바로)
+     */
+    public void changedAfterCommit(Aggregate... aggregates) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            changed(aggregates);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changed(aggregates);
+            }
+        });
+    }
+
+    public void changed(Aggregate... aggregates) {
+        for (Aggregate aggregate : aggregates) {
+            versions.incrementAndGet(aggregate.ordinal());
+        }
+    }
+
+    /**
+     * ex) "lx3k9a2-3.0.12"
+     */
+    public String version(Aggregate... aggregates) {
+        StringBuilder version = new StringBuilder(epoch).append('-');
+        for (int i = 0; i < aggregates.length; i++) {
+            if (i > 0) {
+                version.append('.');
+            }
+            version.append(versions.get(aggregates[i].ordinal()));
+        }
+        return version.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.cache.CategoryTree;
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.category.CategoryItemDto;
+import jpabook.jpashop.repository.category.CategorySubtreeCounts;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class CategoryService {
+    private final CategoryRepository categoryRepository;
+    private final ItemRepository itemRepository;
+    private final CategoryTree categoryTree;
+
+    /**
+     * 카테고리 생성, parentId가 없으면 루트
+     * 먼저 저장해서 id를 받은 뒤 경로를 정한다.(path에 자기 id가 들어간다)
+     */
+    @Transactional
+    public Long create(String name, Long parentId){
+        Category category = new Category();
+        category.setName(name);
+        categoryRepository.save(category);
+        if (parentId != null) {
+            findCategory(parentId).addChildCategory(category);
+        } else {
+            category.initRootPath();
+        }
+        categoryTree.rebuildAfterCommit(); // 커밋되면 트리 스냅샷을 다시 만든다.
+        return category.getId();
+    }
+
+    /**
+     * 다른 부모 밑으로 옮긴다. 하위 카테고리의 path도 update 한 번으로 같이 바뀐다.
+     */
+    @Transactional
+    public void move(Long categoryId, Long parentId){
+        Category category = findCategory(categoryId);
+        String oldPath = category.getPath();
+        findCategory(parentId).addChildCategory(category);
+        categoryRepository.movePaths(oldPath, category.getPath());
+        categoryTree.rebuildAfterCommit();
+    }
+
+    @Transactional
+    public void addItem(Long categoryId, Long itemId){
+        Item item = itemRepository.findOne(itemId);
+        if (item == null) {
+            throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + itemId);
+        }
+        Category category = findCategory(categoryId);
+        category.getItems().add(item);
+        item.getCategories().add(category);
+    }
+
+    public List<Category> findRoots(){
+        return categoryRepository.findRoots();
+    }
+
+    public List<CategoryItemDto> findSubtreeItems(Long categoryId, int offset, int limit){
+        return categoryRepository.findSubtreeItems(findCategory(categoryId), offset, limit);
+    }
+
+    public CategorySubtreeCounts countSubtree(Long categoryId){
+        Category category = findCategory(categoryId);
+        return new CategorySubtreeCounts(categoryId,
+                categoryRepository.countDescendants(category),
+                categoryRepository.countSubtreeItems(category));
+    }
+
+    private Category findCategory(Long categoryId){
+        Category category = categoryRepository.findOne(categoryId);
+        if (category == null) {
+            throw new IllegalArgumentException("존재하지 않는 카테고리입니다. categoryId=" + categoryId);
+        }
+        return category;
+    }
+}
@@ -0,0 +1,166 @@
+package jpabook.jpashop.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 상품 하나의 인메모리 재고(lock-free)
+ * - 가용 재고를 여러 샤드(AtomicLongArray)로 나누고 스레드마다 다른 샤드에서 CAS로 차감한다.(값 하나에 CAS가 몰리지 않도록)
+ * - 내 샤드에 재고가 모자라면 다른 샤드를 차례로 시도하고, 그래도 안 되면 전체 샤드를 모아서 재분배한다.(재고가 거의 떨어졌을 때만, 이때만 락)
+ * - 재고 단위 하나는 항상 샤드 하나에만 있으므로 샤드 합보다 많이 팔 수 없다.
+ * - 아직 DB에 반영하지 않은 재고 변화량은 LongAdder에 누적했다가 주기적으로 한 번에 반영한다.
+ * - 카운터는 값을 고쳐 쓰지 않고 새 카운터로 교체한다.(retire 이후 이 카운터에서는 더 이상 예약되지 않는다)
+ * - 샤드 차감과 변화량 누적은 원자적이지 않으므로 진행 중인 예약/반환 수(inFlight)를 센다.
+ *   예약/반환은 inFlight를 올린 뒤 retired를 확인하므로, retire 이후 inFlight가 0인 것을 본 다음에는 변화량이 더 생기지 않는다.(isQuiescent)
+ */
+class HotStock {
+    private final Long itemId;
+    private final AtomicLongArray shards;
+    private final AtomicLongArray inFlight; // 샤드(스레드)별 진행 중인 예약/반환 수, 올리고 내리는 칸이 같다.
+    private final int mask;
+    private final LongAdder pendingDelta = new LongAdder();
+    private volatile boolean retired;
+
+    HotStock(Long itemId, long available) {
+        this(itemId, available, Runtime.getRuntime().availableProcessors());
+    }
+
+    HotStock(Long itemId, long available, int parallelism) {
+        int size = 1;
+        while (size < parallelism) {
+            size <<= 1;
+        }
+        this.itemId = itemId;
+        this.shards = new AtomicLongArray(size);
+        this.inFlight = new AtomicLongArray(size);
+        this.mask = size - 1;
+        distribute(available);
+    }
+
+    Long getItemId() {
+        return itemId;
+    }
+
+    boolean tryReserve(int count) {
+        int start = probe();
+        inFlight.incrementAndGet(start);
+        try {
+            if (retired) {
+                return false;
+            }
+            for (int i = 0; i < shards.length(); i++) {
+                int index = (start + i) & mask;
+                long current;
+                while ((current = shards.get(index)) >= count) {
+                    if (shards.compareAndSet(index, current, current - count)) {
+                        pendingDelta.add(-count);
+                        return true;
+                    }
+                }
+            }
+            return rebalanceAndReserve(count);
+        } finally {
+            inFlight.decrementAndGet(start);
+        }
+    }
+
+    /**
+     * 재고 반환, 닫힌 카운터면 반환하지 않고 false를 반환한다.(호출하는 쪽에서 새 카운터에 다시 반환한다)
+     */
+    boolean tryRelease(int count) {
+        int index = probe();
+        inFlight.incrementAndGet(index);
+        try {
+            if (retired) {
+                return false;
+            }
+            shards.addAndGet(index, count);
+            pendingDelta.add(count);
+            return true;
+        } finally {
+            inFlight.decrementAndGet(index);
+        }
+    }
+
+    long available() {
+        long sum = 0;
+        for (int i = 0; i < shards.length(); i++) {
+            sum += shards.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * DB에 반영할 변화량을 꺼낸다.(반영에 실패하면 restoreDelta로 되돌린다)
+     */
+    long drainDelta() {
+        return pendingDelta.sumThenReset();
+    }
+
+    void restoreDelta(long delta) {
+        pendingDelta.add(delta);
+    }
+
+    boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * 닫힌 뒤 진행 중인 예약/반환이 없으면 true, 이후로는 변화량이 바뀌지 않으므로 마지막으로 꺼내고 버려도 된다.
+     */
+    boolean isQuiescent() {
+        if (!retired) {
+            return false;
+        }
+        for (int i = 0; i < inFlight.length(); i++) {
+            if (inFlight.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 교체된 카운터를 닫고 남은 가용 재고를 꺼낸다.
+     * 샤드를 getAndSet(0)으로 비우므로 이미 성공한 CAS는 빠지고 남은 양만 꺼내지고, 이후의 예약은 실패한다.
+     * 재분배(rebalanceAndReserve)와 같은 락을 잡아서 재분배가 샤드를 다시 채우지 못하게 한다.
+     */
+    synchronized long retire() {
+        retired = true;
+        long total = 0;
+        for (int i = 0; i < shards.length(); i++) {
+            total += shards.getAndSet(i, 0);
+        }
+        return total;
+    }
+
+    private synchronized boolean rebalanceAndReserve(int count) {
+        if (retired) {
+            return false;
+        }
+        long total = 0;
+        for (int i = 0; i < shards.length(); i++) {
+            total += shards.getAndSet(i, 0);
+        }
+        boolean reserved = total >= count;
+        if (reserved) {
+            total -= count;
+            pendingDelta.add(-count);
+        }
+        distribute(total);
+        return reserved;
+    }
+
+    private void distribute(long total) {
+        int size = shards.length();
+        long share = total / size;
+        long remainder = total % size;
+        for (int i = 0; i < size; i++) {
+            shards.addAndGet(i, share + (i < remainder ? 1 : 0));
+        }
+    }
+
+    private int probe() {
+        return (int) Thread.currentThread().getId() & mask;
+    }
+}
@@ -0,0 +1,246 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.service.AggregateVersions.Aggregate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 플래시 세일용 인메모리 재고 예약
+ * - hot으로 표시된 상품은 재고를 DB row가 아니라 메모리 카운터(HotStock)에서 차감한다.(row 락 경합 없음)
+ * - 차감/원복된 양은 모아뒀다가 jpashop.stock.hot-flush-interval-ms 마다 상품당 update 한 번으로 Item.stockQuantity에 반영한다.
+ * - 주문 트랜잭션이 롤백되면 예약한 재고를 돌려놓고, 주문 취소는 커밋된 뒤에 카운터로 돌려놓는다.
+ * - 애플리케이션 시작 시, hot 여부가 바뀔 때 카운터를 맞춘다.(reconcile)
+ *   이미 hot인 상품의 카운터는 그대로 두고(아직 반영하지 않은 예약이 DB 재고에는 없으므로) 새로 hot이 된 상품만 DB 재고로 만든다.
+ * - 카운터를 바꿀 때는 기존 카운터를 닫고(HotStock.retire) 새 카운터로 교체한다. 닫힌 카운터를 잡고 있던 예약은 새 카운터로 다시 시도한다.
+ * - flush/reconcile은 주문 트랜잭션의 afterCommit에서도 호출되므로 항상 새 트랜잭션(REQUIRES_NEW)에서 DB에 접근한다.
+ *
+ * 주의
+ * - 카운터는 인스턴스 메모리에 있으므로 hot 상품 주문은 인스턴스 하나가 처리해야 한다.
+ * - 아직 반영하지 않은 변화량(최대 flush 주기 만큼)은 프로세스가 비정상 종료되면 DB에 반영되지 않는다.
+ * - hot으로 바꾸는 시점에 DB에서 차감 중인(아직 커밋 전) 주문은 새 카운터에 반영되지 않으므로 세일 시작 전에 바꾸는 것이 안전하다.
+ */
+@Slf4j
+@Component
+public class HotStockReservations {
+    private final ItemRepository itemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AggregateVersions aggregateVersions;
+
+    private final Map<Long, HotStock> stocks = new ConcurrentHashMap<>();
+    private final Queue<HotStock> retired = new ConcurrentLinkedQueue<>(); // 교체된 카운터, 진행 중인 예약이 끝날 때까지 변화량을 반영하고 버린다.
+    private final Map<Long, Long> orphanDeltas = new ConcurrentHashMap<>(); // hot이 해제된 뒤에 돌아온 재고
+
+    public HotStockReservations(ItemRepository itemRepository, PlatformTransactionManager transactionManager,
+                                AggregateVersions aggregateVersions) {
+        this.itemRepository = itemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.aggregateVersions = aggregateVersions;
+    }
+
+    public boolean isHot(Long itemId) {
+        return stocks.containsKey(itemId);
+    }
+
+    /**
+     * 재고 예약, DB에 접근하지 않는다. 트랜잭션이 롤백되면 예약을 취소한다.
+     * 그 사이 hot이 해제되었으면 false를 반환한다.(호출하는 쪽에서 DB 재고로 차감한다)
+     */
+    public boolean reserve(Long itemId, int count) {
+        HotStock stock;
+        while ((stock = stocks.get(itemId)) != null) {
+            if (stock.tryReserve(count)) {
+                afterCompletion(() -> {}, () -> returnStock(itemId, count));
+                return true;
+            }
+            if (!stock.isRetired()) {
+                throw new NotEnoughStockException("need more stock");
+            }
+            // 카운터가 교체되는 중이었다. 새 카운터로 다시 시도한다.
+        }
+        return false;
+    }
+
+    /**
+     * 재고 반환(주문 취소), 트랜잭션이 커밋된 뒤에 반환한다.
+     */
+    public void release(Long itemId, int count) {
+        afterCompletion(() -> returnStock(itemId, count), () -> {});
+    }
+
+    /**
+     * 재고를 직접 수정한 경우(ItemService.updateItem) 커밋된 뒤에 그 값으로 새 카운터를 만들어 교체한다.
+     * 관리자가 입력한 값이 기준이므로 기존 카운터의 반영하지 않은 변화량은 버린다.
+     */
+    public void reset(Long itemId, int stockQuantity) {
+        afterCompletion(() -> {
+            HotStock[] replaced = new HotStock[1];
+            stocks.computeIfPresent(itemId, (id, stock) -> {
+                replaced[0] = stock;
+                return new HotStock(id, stockQuantity);
+            });
+            if (replaced[0] != null) {
+                replaced[0].retire();
+                replaced[0].drainDelta(); // 진행 중이던 예약이 나중에 남기는 변화량도 이 카운터와 같이 버려진다.
+            }
+        }, () -> {});
+    }
+
+    public long available(Long itemId) {
+        return get(itemId).available();
+    }
+
+    /**
+     * 쌓인 변화량을 반영한 뒤 DB의 hot 여부에 맞춰 카운터를 추가/제거한다.
+     * - 계속 hot인 상품: 카운터를 그대로 둔다. DB 재고를 다시 읽으면 flush 이후에 받은 예약이 빠져서 초과 판매가 생긴다.
+     * - 새로 hot이 된 상품: DB 재고로 카운터를 만든다.
+     * - hot이 해제된 상품: 카운터를 닫고, 남은 변화량은 다음 flush에서 반영한다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reconcile() {
+        flush();
+        List<Item> hotItems = transactionTemplate.execute(status -> itemRepository.findHotItems());
+
+        Set<Long> hotIds = new HashSet<>();
+        for (Item item : hotItems) {
+            hotIds.add(item.getId());
+            stocks.computeIfAbsent(item.getId(), id -> new HotStock(id, item.getStockQuantity()));
+        }
+        for (Long itemId : new ArrayList<>(stocks.keySet())) {
+            if (!hotIds.contains(itemId)) {
+                HotStock stock = stocks.remove(itemId);
+                stock.retire();
+                retired.add(stock);
+            }
+        }
+        log.info("hot stock reconciled: {} items", stocks.size());
+    }
+
+    /**
+     * 누적된 재고 변화량을 상품당 update 한 번으로 DB에 반영한다. 실패하면 변화량을 되돌려두고 다음 주기에 다시 시도한다.
+     */
+    @Scheduled(fixedDelayString = "${jpashop.stock.hot-flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<HotStock> targets = new ArrayList<>(stocks.values());
+        List<HotStock> retiredTargets = new ArrayList<>();
+        HotStock old;
+        while ((old = retired.poll()) != null) {
+            retiredTargets.add(old);
+        }
+        // 꺼내기 전에 확인해야 한다. 진행 중인 예약이 남아 있으면 그 변화량이 나중에 들어오므로 다음 주기에 다시 꺼낸다.
+        List<HotStock> done = new ArrayList<>();
+        for (HotStock stock : retiredTargets) {
+            if (stock.isQuiescent()) {
+                done.add(stock);
+            }
+        }
+        targets.addAll(retiredTargets);
+        Map<Long, Long> orphans = new HashMap<>();
+        for (Long itemId : new ArrayList<>(orphanDeltas.keySet())) {
+            Long delta = orphanDeltas.remove(itemId);
+            if (delta != null) {
+                orphans.put(itemId, delta);
+            }
+        }
+
+        long[] deltas = new long[targets.size()];
+        for (int i = 0; i < targets.size(); i++) {
+            deltas[i] = targets.get(i).drainDelta();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                boolean changed = false;
+                for (int i = 0; i < targets.size(); i++) {
+                    if (deltas[i] != 0) {
+                        itemRepository.changeStock(targets.get(i).getItemId(), deltas[i]);
+                        changed = true;
+                    }
+                }
+                for (Map.Entry<Long, Long> orphan : orphans.entrySet()) {
+                    if (orphan.getValue() != 0) {
+                        itemRepository.changeStock(orphan.getKey(), orphan.getValue());
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    aggregateVersions.changedAfterCommit(Aggregate.ITEM); // 상품 목록의 재고가 바뀐다.
+                }
+            });
+            retiredTargets.removeAll(done);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < targets.size(); i++) {
+                targets.get(i).restoreDelta(deltas[i]);
+            }
+            orphans.forEach((itemId, delta) -> orphanDeltas.merge(itemId, delta, Long::sum));
+            log.warn("hot stock flush failed, will retry", e);
+        }
+        retired.addAll(retiredTargets); // 아직 끝나지 않았거나 반영에 실패한 카운터는 다음 주기에 다시 반영한다.
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private HotStock get(Long itemId) {
+        HotStock stock = stocks.get(itemId);
+        if (stock == null) {
+            throw new IllegalStateException("hot 상품이 아닙니다. itemId=" + itemId);
+        }
+        return stock;
+    }
+
+    /**
+     * 예약 취소, 주문 취소로 돌아온 재고는 그 시점의 카운터에 돌려놓는다.(예약한 카운터가 이미 교체되었을 수 있다)
+     * hot이 해제되었으면 변화량만 모아 두었다가 다음 flush에서 DB에 반영한다.
+     */
+    private void returnStock(Long itemId, int count) {
+        HotStock stock;
+        while ((stock = stocks.get(itemId)) != null) {
+            if (stock.tryRelease(count)) {
+                return;
+            }
+            // 닫힌 카운터였다. 교체된 새 카운터에 다시 넣는다.
+        }
+        orphanDeltas.merge(itemId, (long) count, Long::sum);
+    }
+
+    private void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    onCommit.run();
+                } else {
+                    onRollback.run();
+                }
+            }
+        });
+    }
+}
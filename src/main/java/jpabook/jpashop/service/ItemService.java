@@ -3,21 +3,37 @@ package jpabook.jpashop.service;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.order.view.OrderViewProjector;
+import jpabook.jpashop.search.ItemSearchIndex;
+import jpabook.jpashop.service.AggregateVersions.Aggregate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class ItemService {
     private final ItemRepository itemRepository;
+    private final HotStockReservations hotStockReservations;
+    private final AggregateVersions aggregateVersions;
+    private final OrderViewProjector orderViewProjector;
+    private final ItemSearchIndex itemSearchIndex;
 
     @Transactional
     public void saveItem(Item item){
+        boolean merge = item.getId() != null;
         itemRepository.save(item);
+        if (merge) { // 준영속 상품으로 수정(merge)하면 이름이 바뀌었을 수 있다.
+            orderViewProjector.itemRenamed(item.getId(), item.getName());
+        }
+        itemSearchIndex.indexAfterCommit(item); // 커밋되면 검색 색인에 반영
+        aggregateVersions.changedAfterCommit(Aggregate.ITEM);
     }
 
     @Transactional
@@ -33,9 +49,33 @@ public class ItemService {
          * 아래와 같이 세터를 통해 값을 변경하는 방법도 바람직하지 않다.
          * 따로 해당 클래스에 의미있는 change 메서드를 만들어 쓰자(가격이나 이름, 양을 인자로 넘기는 등)
          */
+        if (!Objects.equals(name, findItem.getName())) {
+            orderViewProjector.itemRenamed(itemId, name); // order_view의 상품 이름도 같은 트랜잭션에서 바꾼다.
+        }
         findItem.setName(name);
         findItem.setPrice(price);
         findItem.setStockQuantity(stockQuantity);
+        if (hotStockReservations.isHot(itemId)) { // 인메모리 재고도 커밋 후 같은 값으로 맞춘다.
+            hotStockReservations.reset(itemId, stockQuantity);
+        }
+        itemSearchIndex.indexAfterCommit(findItem);
+        aggregateVersions.changedAfterCommit(Aggregate.ITEM);
+    }
+
+    /**
+     * hot 상품 지정/해제, 커밋 후 인메모리 재고를 DB 기준으로 다시 맞춘다.
+     */
+    @Transactional
+    public void changeHot(Long itemId, boolean hot){
+        Item findItem = itemRepository.findOne(itemId);
+        findItem.setHot(hot);
+        aggregateVersions.changedAfterCommit(Aggregate.ITEM);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                hotStockReservations.reconcile();
+            }
+        });
     }
     public List<Item> findItems(){
         return itemRepository.findAll();
@@ -0,0 +1,123 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 회원 이름 Bloom filter, 회원 가입 시 중복 검사 쿼리를 줄이기 위해 사용한다.
+ * - mightContain이 false면 그 이름은 확실히 없으므로 조회하지 않는다.(대부분의 가입이 여기에 해당)
+ * - true면 있을 수도 있으므로(오탐) DB를 조회한다.
+ * - 애플리케이션 시작 시 member 테이블의 이름으로 채운다. 채우기 전에는 항상 true(=DB 조회)를 돌려준다.
+ *
+ * 이름을 지우는 기능은 없다.(Bloom filter는 삭제를 지원하지 않는다) 지워진 이름은 오탐이 될 뿐 정확성에는 문제가 없다.
+ * 필터를 빠져나가도 member.name 유니크 제약 조건이 최종적으로 중복을 막는다.
+ * 회원 수가 expected-insertions를 넘으면 오탐률이 올라가므로 그때는 값을 늘리고 재시작하자.
+ */
+@Slf4j
+@Component
+public class MemberNameFilter {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+    private volatile boolean ready;
+
+    public MemberNameFilter(MemberRepository memberRepository, PlatformTransactionManager transactionManager,
+                            @Value("${jpashop.member.name-filter.expected-insertions:1000000}") long expectedInsertions,
+                            @Value("${jpashop.member.name-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.memberRepository = memberRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        // m = -n ln p / (ln 2)^2, k = m / n ln 2
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) Math.max(1, (m + 63) / 64));
+        this.bitSize = (long) bits.length() * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+
+    /**
+     * 기존 회원 이름으로 필터를 채운다. 채우는 동안 가입한 회원도 같은 비트 배열에 들어가므로 빠지지 않는다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long[] count = new long[1];
+        transactionTemplate.executeWithoutResult(status -> memberRepository.streamAllNames(name -> {
+            add(name);
+            count[0]++;
+        }));
+        ready = true;
+        log.info("member name filter built: {} names, {}ms", count[0], System.currentTimeMillis() - start);
+    }
+
+    public void add(String name) {
+        if (name == null) {
+            return;
+        }
+        long hash1 = hash(name, FNV_OFFSET);
+        long hash2 = hash(name, hash1);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitSize);
+            setBit(index);
+        }
+    }
+
+    public boolean mightContain(String name) {
+        if (!ready) {
+            return true;
+        }
+        if (name == null) {
+            return true;
+        }
+        long hash1 = hash(name, FNV_OFFSET);
+        long hash2 = hash(name, hash1);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitSize);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+
+    // FNV-1a 64bit + 섞기, 두 해시로 k개의 해시를 만든다.(Kirsch-Mitzenmacher)
+    private static long hash(String value, long seed) {
+        long h = seed;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= FNV_PRIME;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,12 +1,17 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.cache.OrderQueryCache;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.order.view.OrderViewProjector;
+import jpabook.jpashop.service.AggregateVersions.Aggregate;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 //JPA의 모든 데이터 변경은 가급적이면 트랜잭션 안에서 수행되어야 한다. 쓸 수 있는 옵션이 많은 spring의 Transactional 어노테이션을 사용하자.
@@ -15,6 +20,10 @@ import java.util.List;
 public class MemberService {
 
     private final MemberRepository memberRepository; // 주입받을 필드는 final로 설정하자. 컴파일 타임에 오류 잡기가 쉽다.
+    private final OrderQueryCache orderQueryCache;
+    private final MemberNameFilter memberNameFilter;
+    private final AggregateVersions aggregateVersions;
+    private final OrderViewProjector orderViewProjector;
 
     /*
     @Autowired // 스프링은 생성자가 하나만 있을 경우엔 이 어노테이션을 안붙여도 자동으로 injection 해준다. 이같은 이유로 @RequiredArgsConstructor만으로 정상 동작한다.
@@ -27,19 +36,37 @@ public class MemberService {
      */
     @Transactional // 이렇게 메서드에 따로 설정하면 따로 설정한 것이 우선권을 갖는다(readOnly의 디폴트가 false이므로 readOnly=false 이다)
     public Long join(Member member){
-        validateDuplicateMember(member); // 중복 회원 검증
+        validateDuplicateMember(member.getName()); // 중복 회원 검증
         memberRepository.save(member);
+        flushName(member.getName());
+        aggregateVersions.changedAfterCommit(Aggregate.MEMBER);
         return member.getId(); // 커맨더랑 쿼리를 분리하라는 법칙에 의해 리턴값을 거의 안만들고 id만을 리턴한다.(id로도 조회가 가능하니까)
     }
 
-    private void validateDuplicateMember(Member member) {
+    private void validateDuplicateMember(String name) {
         // 실무에선 멀티 스레드 환경을 고려해서 member의 name을 유니크 제약 조건을 걸어주는 것을 권장.(ex.동시에 A라는 이름의 멤버가 join을 요청할 때)
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-        if(!findMembers.isEmpty()){
+        // -> uk_member_name 유니크 제약 조건을 걸었다. 여기서는 대부분의 중복을 쿼리 없이/가볍게 먼저 걸러낸다.
+        if (!memberNameFilter.mightContain(name)) {
+            return; // 필터에 없으면 확실히 없는 이름, 조회하지 않는다.
+        }
+        if (memberRepository.existsByName(name)) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
     }
 
+    /**
+     * 바로 flush해서 동시에 가입한 같은 이름이 유니크 제약 조건에 걸리면 기존과 같은 예외로 바꿔준다.
+     * (flush하지 않으면 커밋할 때 DataIntegrityViolationException이 그대로 나간다)
+     */
+    private void flushName(String name) {
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+        memberNameFilter.add(name); // 롤백되어도 오탐이 하나 늘 뿐이다.
+    }
+
     /**
      * 회원 전체 조회
      */
@@ -58,6 +85,16 @@ public class MemberService {
     @Transactional
     public void update(Long id, String name) {
         Member member = memberRepository.findOne(id);
+        boolean renamed = !Objects.equals(name, member.getName());
+        if (renamed) {
+            validateDuplicateMember(name);
+        }
         member.setName(name);
+        flushName(name);
+        if (renamed) {
+            orderViewProjector.memberRenamed(id, name); // order_view에 복사해둔 회원 이름
+        }
+        orderQueryCache.invalidateAfterCommit(); // 주문 조회 결과에 회원 이름이 들어있다.
+        aggregateVersions.changedAfterCommit(Aggregate.MEMBER);
     }
 }
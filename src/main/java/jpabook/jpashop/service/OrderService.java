@@ -1,29 +1,47 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.cache.OrderQueryCache;
 import jpabook.jpashop.domain.Delivery;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.view.OrderViewProjector;
+import jpabook.jpashop.repository.sales.SalesAggregateRepository;
+import jpabook.jpashop.service.AggregateVersions.Aggregate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class OrderService {
+    private static final int FLUSH_SIZE = 100; // hibernate.jdbc.batch_size와 맞춘다.
+
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final HotStockReservations hotStockReservations;
+    private final OrderQueryCache orderQueryCache;
+    private final AggregateVersions aggregateVersions;
+    private final SalesAggregateRepository salesAggregateRepository;
+    private final OrderViewProjector orderViewProjector;
     /**
      * 주문
      */
@@ -33,6 +51,9 @@ public class OrderService {
         Member member = memberRepository.findOne(memberId);
         Item item = itemRepository.findOne(itemId);
 
+        // 재고 차감, 조건부 update 한 번으로 처리해서 동시 주문에도 초과 판매가 없다.(부족하면 NotEnoughStockException)
+        removeStock(item, count);
+
         // 배송정보 생성
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());
@@ -42,7 +63,7 @@ public class OrderService {
          * 생성 메서드가 있는 클래스에 protected 생성자를 선언해서 다른 방식으로 생성하는 것을 막는 게 좋다.
          */
         // 주문 상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count); // 생성 메서드 사용
+        OrderItem orderItem = OrderItem.createReservedOrderItem(item, item.getPrice(), count); // 생성 메서드 사용(재고는 위에서 차감)
 
         // 주문 생성
         Order order = Order.createOrder(member, delivery, orderItem);// 생성 메서드 사용
@@ -51,10 +72,143 @@ public class OrderService {
         // Order 클래스에서 delivery와 orderItems에 설정한 cascade 옵션 덕분에
         // order하나만 persist해도 두 필드도 알아서 persist된다!
         orderRepository.save(order);
+        salesAggregateRepository.recordOrder(order); // 매출 집계도 같은 트랜잭션에서 갱신
+        orderViewProjector.orderCreated(order); // 조회용 order_view도 같이
+        orderQueryCache.invalidateAfterCommit(); // 커밋되면 주문 조회 결과 캐시 무효화
+        aggregateVersions.changedAfterCommit(Aggregate.ORDER, Aggregate.ITEM); // 목록 ETag, 재고도 바뀐다.
 
         return order.getId();
     }
 
+    /**
+     * 여러 상품 주문(주문 하나에 주문상품 여러 개)
+     */
+    @Transactional
+    public Long order(Long memberId, List<OrderLine> lines){
+        return orders(Collections.singletonList(new OrderSheet(memberId, lines))).get(0);
+    }
+
+    /**
+     * 대량 주문(주문 여러 개를 한 트랜잭션에서)
+     * - 참조하는 회원, 상품을 각각 IN 쿼리 한 번으로 조회한다.(주문 라인마다 findOne 하지 않는다)
+     * - 상품별 주문 수량을 합산해서 재고를 메모리에서 먼저 검증하고, 상품마다 조건부 update 한 번으로 차감한다.
+     *   하나라도 부족하면 트랜잭션이 롤백되어 아무것도 저장되지 않는다.
+     * - FLUSH_SIZE 건마다 flush해서 insert가 jdbc batch로 나가게 하고, 영속성 컨텍스트를 비워서 계속 커지지 않게 한다.
+     *   비운 뒤에는 다음 FLUSH_SIZE 건이 참조하는 회원, 상품만 id로 다시 읽고(IN 쿼리), 매출 집계도 그 단위로 반영해서 준영속 주문을 들고 있지 않는다.
+     */
+    @Transactional
+    public List<Long> orders(List<OrderSheet> sheets){
+        Map<Long, Member> members = findMembers(memberIds(sheets));
+
+        Map<Long, Integer> requiredStock = new HashMap<>();
+        for (OrderSheet sheet : sheets) {
+            for (OrderLine line : sheet.getLines()) {
+                requiredStock.merge(line.getItemId(), line.getCount(), Integer::sum);
+            }
+        }
+        Map<Long, Item> items = findItems(requiredStock.keySet());
+        validateStock(items, requiredStock);
+        requiredStock.forEach((itemId, count) -> removeStock(items.get(itemId), count));
+
+        List<Order> orders = new ArrayList<>(FLUSH_SIZE); // 아직 비우지 않은 주문(매출 집계용)
+        List<Long> orderIds = new ArrayList<>(sheets.size());
+        for (int i = 0; i < sheets.size(); i++) {
+            OrderSheet sheet = sheets.get(i);
+            Member member = members.get(sheet.getMemberId());
+            if (member == null) {
+                throw new IllegalArgumentException("존재하지 않는 회원입니다. memberId=" + sheet.getMemberId());
+            }
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+
+            OrderItem[] orderItems = sheet.getLines().stream()
+                    .map(line -> {
+                        Item item = items.get(line.getItemId());
+                        return OrderItem.createReservedOrderItem(item, item.getPrice(), line.getCount());
+                    })
+                    .toArray(OrderItem[]::new);
+
+            Order order = Order.createOrder(member, delivery, orderItems);
+            orderRepository.save(order);
+            orderViewProjector.orderCreated(order);
+            orders.add(order);
+            orderIds.add(order.getId());
+
+            if (orderIds.size() % FLUSH_SIZE == 0) {
+                salesAggregateRepository.recordOrders(orders); // (상품, 날짜)별로 합쳐서 한 번씩 갱신
+                orders.clear();
+                orderRepository.flushAndClear();
+                List<OrderSheet> next = sheets.subList(i + 1, Math.min(i + 1 + FLUSH_SIZE, sheets.size()));
+                if (!next.isEmpty()) {
+                    // 준영속이 된 회원, 상품 대신 다음 묶음이 참조하는 것만 다시 읽는다.(전체를 다시 읽으면 묶음마다 주문 전체 크기의 IN 쿼리)
+                    members.clear();
+                    members.putAll(findMembers(memberIds(next)));
+                    items.clear();
+                    items.putAll(findItems(itemIds(next)));
+                }
+            }
+        }
+        if (!orders.isEmpty()) {
+            salesAggregateRepository.recordOrders(orders);
+        }
+        orderQueryCache.invalidateAfterCommit();
+        aggregateVersions.changedAfterCommit(Aggregate.ORDER, Aggregate.ITEM);
+        return orderIds;
+    }
+
+    private static Set<Long> memberIds(List<OrderSheet> sheets) {
+        return sheets.stream()
+                .map(OrderSheet::getMemberId)
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<Long> itemIds(List<OrderSheet> sheets) {
+        return sheets.stream()
+                .flatMap(sheet -> sheet.getLines().stream())
+                .map(OrderLine::getItemId)
+                .collect(Collectors.toSet());
+    }
+
+    private Map<Long, Member> findMembers(Set<Long> memberIds) {
+        return memberRepository.findAllById(memberIds).stream()
+                .collect(Collectors.toMap(Member::getId, m -> m, (a, b) -> a, HashMap::new)); // 다시 읽을 때 putAll 하므로 변경 가능한 Map
+    }
+
+    private Map<Long, Item> findItems(Set<Long> itemIds) {
+        return itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, i -> i, (a, b) -> a, HashMap::new));
+    }
+
+    /**
+     * hot 상품은 인메모리 카운터에서, 나머지는 DB에서 원자적으로 재고를 차감한다.
+     * (그 사이 hot이 해제되었으면 reserve가 false를 반환하므로 DB에서 차감한다)
+     */
+    private void removeStock(Item item, int count) {
+        if (!hotStockReservations.reserve(item.getId(), count)) {
+            itemRepository.removeStock(item, count);
+        }
+    }
+
+    private void addStock(Item item, int count) {
+        if (hotStockReservations.isHot(item.getId())) {
+            hotStockReservations.release(item.getId(), count);
+        } else {
+            itemRepository.addStock(item, count);
+        }
+    }
+
+    private void validateStock(Map<Long, Item> items, Map<Long, Integer> requiredStock) {
+        requiredStock.forEach((itemId, count) -> {
+            Item item = items.get(itemId);
+            if (item == null) {
+                throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + itemId);
+            }
+            if (!hotStockReservations.isHot(itemId) && item.getStockQuantity() < count) { // hot 상품은 카운터가 검증한다.
+                throw new NotEnoughStockException("need more stock");
+            }
+        });
+    }
+
     /**
      * 주문 취소
      */
@@ -62,8 +216,15 @@ public class OrderService {
     public void cancelOrder(Long orderId){
         // 주문 엔티티 조회
         Order order = orderRepository.findOne(orderId);
-        // 주문 취소
-        order.cancel();
+        // 주문 취소, 재고는 차감할 때와 마찬가지로 update 한 번으로 원복한다.
+        order.markCanceled();
+        for (OrderItem orderItem : order.getOrderItems()) {
+            addStock(orderItem.getItem(), orderItem.getCount());
+        }
+        salesAggregateRepository.recordCancel(order);
+        orderViewProjector.orderStatusChanged(orderId, order.getStatus());
+        orderQueryCache.invalidateAfterCommit();
+        aggregateVersions.changedAfterCommit(Aggregate.ORDER, Aggregate.ITEM);
         /**
          * !!!JPA의 강점은 이런식으로 데이터를 변경하기만 하면 이를 감지하여 필요한 쿼리들을 자동으로 수행해준다.!!!
          * sql을 직접 다루는 다른 라이브러리들은 일일이 쿼리문을 작성해줘야한다.
@@ -72,9 +233,14 @@ public class OrderService {
 
     /**
      * 주문 검색
+     * 같은 검색 조건이 반복되므로 조건에 맞는 주문 id 목록을 캐시하고, 주문은 id로 다시 읽는다.
+     * (엔티티를 캐시하면 요청 사이에 준영속 엔티티를 공유하게 되므로 id만 캐시한다)
      */
     public List<Order> findOrders(OrderSearch orderSearch){
-        return orderRepository.findAllByString(orderSearch);
+        List<Long> orderIds = orderQueryCache.get(
+                OrderQueryCache.key("findAllByString", orderSearch.getMemberName(), orderSearch.getOrderStatus()),
+                () -> orderRepository.findIdsByString(orderSearch));
+        return orderRepository.findAllByIds(orderIds);
     }
 
 
@@ -0,0 +1,16 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 주문서 하나(회원 + 여러 주문 라인), 주문 하나로 만들어진다.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderSheet {
+    private Long memberId;
+    private List<OrderLine> lines;
+}
@@ -0,0 +1,54 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.order.view.OrderViewConsistency;
+import jpabook.jpashop.repository.order.view.OrderViewProjector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 주문 읽기 모델(order_view) 재생성, 정합성 확인
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderViewService {
+    private final OrderViewProjector orderViewProjector;
+
+    @Transactional
+    public int rebuild(){
+        long start = System.currentTimeMillis();
+        int rows = orderViewProjector.rebuild();
+        log.info("order_view rebuilt: {} rows, {}ms", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    /**
+     * 어긋나 보이면 한 번 더 확인한다.(비교 쿼리 사이에 커밋된 주문 때문에 생기는 일시적인 차이는 두 번째에 사라진다)
+     */
+    public OrderViewConsistency check(){
+        OrderViewConsistency result = orderViewProjector.check();
+        if (!result.isConsistent()) {
+            result = orderViewProjector.check();
+        }
+        return result;
+    }
+
+    /**
+     * 주기적으로 확인해서 어긋나 있으면 경고 로그(고치는 건 OrderViewRebuildRunner로 다시 띄워서)
+     * 비교 쿼리가 주문 전체를 읽으므로 인증 없는 API로 열지 않고 여기서만 실행한다.
+     */
+    @Scheduled(initialDelayString = "${jpashop.order-view.check-interval-ms:3600000}",
+            fixedDelayString = "${jpashop.order-view.check-interval-ms:3600000}")
+    public void scheduledCheck(){
+        OrderViewConsistency result = check();
+        if (result.isConsistent()) {
+            log.info("order_view consistent: {}", result);
+        } else {
+            log.warn("order_view inconsistent, rebuild required: {}", result);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.sales.ItemDailySalesDto;
+import jpabook.jpashop.repository.sales.OrderStatusCountDto;
+import jpabook.jpashop.repository.sales.SalesAggregateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 매출 리포트, orders/order_item을 훑지 않고 집계 테이블(item_daily_sales, order_status_count)만 읽는다.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class SalesReportService {
+    private static final int MAX_DAYS = 366;
+
+    private final SalesAggregateRepository salesAggregateRepository;
+
+    public List<ItemDailySalesDto> findItemDailySales(LocalDate from, LocalDate to, Long itemId){
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from은 to보다 뒤일 수 없습니다.");
+        }
+        if (from.plusDays(MAX_DAYS).isBefore(to)) {
+            throw new IllegalArgumentException("최대 " + MAX_DAYS + "일까지 조회할 수 있습니다.");
+        }
+        return salesAggregateRepository.findItemDailySales(from, to, itemId);
+    }
+
+    public List<OrderStatusCountDto> findOrderStatusCounts(){
+        return salesAggregateRepository.findOrderStatusCounts();
+    }
+
+    /**
+     * 집계 테이블을 주문 원본으로 다시 만든다.(백필, 집계가 어긋났을 때)
+     */
+    @Transactional
+    public void rebuild(){
+        long start = System.currentTimeMillis();
+        salesAggregateRepository.rebuild();
+        log.info("sales aggregates rebuilt, {}ms", System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,116 @@
+package jpabook.jpashop.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * 요청마다 실행된 SQL 수를 X-SQL-Count 헤더와 로그로 남긴다.
+ * - 헤더는 응답 바디를 쓰기 시작할 때의 값이다.(헤더는 바디보다 먼저 나가야 하므로)
+ *   OSIV로 직렬화 중에 지연 로딩되는 SQL까지 포함한 전체 값은 로그에 남는다.
+ * - 같은 문장이 jpashop.sql.n-plus-one-threshold 번 이상 실행되면 N+1 의심으로 warn 로그를 남긴다.
+ */
+@Slf4j
+@Component
+public class SqlCountFilter extends OncePerRequestFilter {
+    public static final String HEADER = "X-SQL-Count";
+
+    private final int nPlusOneThreshold;
+
+    public SqlCountFilter(@Value("${jpashop.sql.n-plus-one-threshold:3}") int nPlusOneThreshold) {
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatements statements = SqlCounter.begin();
+        CountingResponse countingResponse = new CountingResponse(response, statements);
+        try {
+            filterChain.doFilter(request, countingResponse);
+        } finally {
+            SqlCounter.end(statements);
+            countingResponse.writeHeader();
+            log(request, statements);
+        }
+    }
+
+    private void log(HttpServletRequest request, SqlStatements statements) {
+        if (statements.getCount() == 0) {
+            return;
+        }
+        if (statements.maxRepeat() >= nPlusOneThreshold) {
+            log.warn("{} {} sql={} time={}ms, possible N+1 repeated={}", request.getMethod(), request.getRequestURI(),
+                    statements.getCount(), statements.getElapsedMillis(), statements.repeated());
+        } else {
+            log.info("{} {} sql={} time={}ms repeated={}", request.getMethod(), request.getRequestURI(),
+                    statements.getCount(), statements.getElapsedMillis(), statements.repeated());
+        }
+    }
+
+    /**
+     * 응답이 커밋되기 직전(바디 쓰기 시작, flush, 에러/리다이렉트)에 헤더를 넣는다.
+     */
+    private static class CountingResponse extends HttpServletResponseWrapper {
+        private final SqlStatements statements;
+        private boolean written;
+
+        CountingResponse(HttpServletResponse response, SqlStatements statements) {
+            super(response);
+            this.statements = statements;
+        }
+
+        void writeHeader() {
+            if (!written && !isCommitted()) {
+                setHeader(HEADER, String.valueOf(statements.getCount()));
+            }
+            written = true;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeader();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package jpabook.jpashop.sql;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy가 감싼 DataSource에서 실행되는 모든 SQL(배치 포함)을 SqlCounter의 현재 범위에 기록한다.
+ * p6spy-spring-boot-starter가 JdbcEventListener 빈을 찾아서 등록해준다.(로그 출력 여부와 상관없이 동작)
+ */
+@Component
+public class SqlCountListener extends SimpleJdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlCounter.record(statementInformation.getSql(), timeElapsedNanos);
+    }
+}
@@ -0,0 +1,68 @@
+package jpabook.jpashop.sql;
+
+import java.util.function.Supplier;
+
+/**
+ * 현재 스레드에서 실행되는 SQL을 세는 범위를 연다.(SqlCountListener가 기록한다)
+ * 범위는 중첩할 수 있고, 안쪽 범위에서 실행된 SQL은 바깥 범위에도 같이 세어진다.
+ *
+ * 테스트에서는 쿼리 수가 늘어나는 회귀(N+1)를 막는 데 쓴다.
+ * ex) SqlCounter.assertAtMost(2, () -> orderQueryRepository.findAllByDto_optimization());
+ */
+public final class SqlCounter {
+    private static final ThreadLocal<SqlStatements> CURRENT = new ThreadLocal<>();
+
+    private SqlCounter() {
+    }
+
+    public static SqlStatements begin() {
+        SqlStatements statements = new SqlStatements(CURRENT.get());
+        CURRENT.set(statements);
+        return statements;
+    }
+
+    public static void end(SqlStatements statements) {
+        if (statements.getParent() == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(statements.getParent());
+        }
+    }
+
+    /**
+     * 현재 열려 있는 범위들에 기록한다. 열린 범위가 없으면 아무것도 하지 않는다.
+     */
+    static void record(String sql, long nanos) {
+        for (SqlStatements statements = CURRENT.get(); statements != null; statements = statements.getParent()) {
+            statements.record(sql, nanos);
+        }
+    }
+
+    public static SqlStatements count(Runnable runnable) {
+        SqlStatements statements = begin();
+        try {
+            runnable.run();
+        } finally {
+            end(statements);
+        }
+        return statements;
+    }
+
+    public static <T> T assertAtMost(int maxStatements, Supplier<T> supplier) {
+        SqlStatements statements = begin();
+        T result;
+        try {
+            result = supplier.get();
+        } finally {
+            end(statements);
+        }
+        assertAtMost(maxStatements, statements);
+        return result;
+    }
+
+    public static void assertAtMost(int maxStatements, SqlStatements statements) {
+        if (statements.getCount() > maxStatements) {
+            throw new AssertionError("expected at most " + maxStatements + " SQL statements but was " + statements);
+        }
+    }
+}
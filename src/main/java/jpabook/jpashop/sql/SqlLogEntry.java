@@ -0,0 +1,22 @@
+package jpabook.jpashop.sql;
+
+/**
+ * 로그 한 건의 원본 값, 문자열 조립(포맷팅)은 로그 스레드에서 한다.
+ */
+class SqlLogEntry {
+    final long timestamp;
+    final String thread;
+    final String sql; // 느린/실패한 문장은 파라미터 값이 들어간 SQL
+    final long elapsedNanos;
+    final boolean slow;
+    final String error;
+
+    SqlLogEntry(long timestamp, String thread, String sql, long elapsedNanos, boolean slow, String error) {
+        this.timestamp = timestamp;
+        this.thread = thread;
+        this.sql = sql;
+        this.elapsedNanos = elapsedNanos;
+        this.slow = slow;
+        this.error = error;
+    }
+}
@@ -0,0 +1,130 @@
+package jpabook.jpashop.sql;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * 샘플링 + 비동기 SQL 로그 (org.hibernate.SQL debug, org.hibernate.type trace, p6spy 로그를 대신한다)
+ * - 느린 문장(jpashop.sql.log.slow-threshold-ms 이상)과 실패한 문장은 모두, 나머지는 sample-rate 건 중 1건만 남긴다.
+ * - 요청 스레드는 원본 값만 링 버퍼에 넣고 바로 돌아간다. 포맷팅과 로그 출력은 로그 스레드(jpashop-sql-log)가 한다.
+ * - 버퍼가 가득 차면 버리고 버린 수를 주기적으로 남긴다.
+ *
+ * 파라미터 값이 들어간 SQL(getSqlWithValues)은 만드는 비용이 있어서 느린/실패한 문장만 만든다.
+ * 문장 객체는 실행 뒤에 재사용되므로 나중에 만들 수는 없다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jpashop.sql.log.enabled", matchIfMissing = true)
+public class SqlLogListener extends SimpleJdbcEventListener {
+    private static final org.slf4j.Logger SQL_LOG = org.slf4j.LoggerFactory.getLogger("jpashop.sql");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final DateTimeFormatter EXECUTED_AT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final int sampleRate;
+    private final long slowThresholdNanos;
+    private final SqlLogRingBuffer buffer;
+    private final LongAdder dropped = new LongAdder();
+
+    private Thread writer;
+    private volatile boolean running;
+
+    public SqlLogListener(@Value("${jpashop.sql.log.sample-rate:100}") int sampleRate,
+                          @Value("${jpashop.sql.log.slow-threshold-ms:100}") long slowThresholdMs,
+                          @Value("${jpashop.sql.log.buffer-size:8192}") int bufferSize) {
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.buffer = new SqlLogRingBuffer(bufferSize);
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        boolean slow = timeElapsedNanos >= slowThresholdNanos;
+        if (!slow && e == null && !sampled()) {
+            return;
+        }
+        String sql = slow || e != null ? statementInformation.getSqlWithValues() : statementInformation.getSql();
+        SqlLogEntry entry = new SqlLogEntry(System.currentTimeMillis(), Thread.currentThread().getName(),
+                sql, timeElapsedNanos, slow, e == null ? null : e.getMessage());
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private boolean sampled() {
+        return sampleRate > 0 && (sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "jpashop-sql-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void drainLoop() {
+        long lastDropReport = System.currentTimeMillis();
+        while (running) {
+            if (!drain()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10)); // 비어 있으면 잠깐 쉰다.(요청 스레드는 깨우지 않는다)
+            }
+            if (System.currentTimeMillis() - lastDropReport > 10_000) {
+                long count = dropped.sumThenReset();
+                if (count > 0) {
+                    log.warn("sql log buffer full, dropped {} statements", count);
+                }
+                lastDropReport = System.currentTimeMillis();
+            }
+        }
+        drain(); // 종료 시 남은 로그
+    }
+
+    private boolean drain() {
+        boolean drained = false;
+        SqlLogEntry entry;
+        while ((entry = buffer.poll()) != null) {
+            write(entry);
+            drained = true;
+        }
+        return drained;
+    }
+
+    /**
+     * 로그 스레드가 늦게 출력할 수 있으므로 실행 시각(entry.timestamp)을 같이 남긴다.(로그 이벤트 시각은 출력한 시각)
+     */
+    private void write(SqlLogEntry entry) {
+        String sql = WHITESPACE.matcher(entry.sql).replaceAll(" ").trim();
+        String executedAt = EXECUTED_AT.format(Instant.ofEpochMilli(entry.timestamp));
+        double elapsedMs = entry.elapsedNanos / 1_000_000.0;
+        if (entry.error != null) {
+            SQL_LOG.warn("[{}] {} {}ms failed: {} | {}", entry.thread, executedAt, String.format("%.2f", elapsedMs), entry.error, sql);
+        } else if (entry.slow) {
+            SQL_LOG.warn("[{}] {} {}ms slow | {}", entry.thread, executedAt, String.format("%.2f", elapsedMs), sql);
+        } else if (SQL_LOG.isInfoEnabled()) {
+            SQL_LOG.info("[{}] {} {}ms sampled 1/{} | {}", entry.thread, executedAt, String.format("%.2f", elapsedMs), sampleRate, sql);
+        }
+    }
+}
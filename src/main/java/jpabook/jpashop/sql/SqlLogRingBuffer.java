@@ -0,0 +1,58 @@
+package jpabook.jpashop.sql;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 여러 요청 스레드가 넣고 로그 스레드 하나가 꺼내는 고정 크기 링 버퍼(락 없음)
+ * 슬롯마다 시퀀스를 두고 CAS로 쓰기 위치를 잡는다.(Vyukov bounded MPMC 큐의 단일 소비자 버전)
+ * 가득 차면 기다리지 않고 버린다.(요청 스레드가 로그 때문에 막히지 않게)
+ */
+class SqlLogRingBuffer {
+    private final AtomicReferenceArray<SqlLogEntry> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // 소비자 스레드만 접근
+
+    SqlLogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(SqlLogEntry entry) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, entry);
+                    sequences.set(index, position + 1); // 소비자에게 공개
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false; // 가득 참
+            }
+            // 다른 스레드가 먼저 가져간 위치, 다시 시도
+        }
+    }
+
+    SqlLogEntry poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null; // 비어 있음(또는 아직 쓰는 중)
+        }
+        SqlLogEntry entry = slots.get(index);
+        slots.lazySet(index, null);
+        sequences.set(index, head + mask + 1); // 한 바퀴 뒤 쓰기 위치로 반납
+        head++;
+        return entry;
+    }
+}
@@ -0,0 +1,85 @@
+package jpabook.jpashop.sql;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 한 범위(요청, 테스트 블록)에서 실행된 SQL 집계
+ * - 실행 횟수, DB 시간 합계, SQL 문장별 실행 횟수
+ * - 같은 문장이 여러 번 실행되면 N+1을 의심할 수 있다.(repeated)
+ *
+ * 요청 스레드 하나에서만 쓰이므로 동기화하지 않는다.
+ */
+public class SqlStatements {
+    private static final Pattern IN_LIST = Pattern.compile("in\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final SqlStatements parent;
+    private int count;
+    private long elapsedNanos;
+    private final Map<String, Integer> executions = new HashMap<>();
+
+    SqlStatements(SqlStatements parent) {
+        this.parent = parent;
+    }
+
+    SqlStatements getParent() {
+        return parent;
+    }
+
+    void record(String sql, long nanos) {
+        count++;
+        elapsedNanos += nanos;
+        if (sql != null) {
+            executions.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * 실행된 SQL 문장(파라미터는 ?), 테스트에서 어떤 테이블을 조인했는지 확인할 때 쓴다.
+     */
+    public Set<String> getStatements() {
+        return Collections.unmodifiableSet(executions.keySet());
+    }
+
+    /**
+     * 두 번 이상 실행된 문장(fingerprint -> 횟수), 많이 실행된 순
+     * fingerprint는 공백을 정리하고 in (?, ?, ...)을 in (?)로 합친 SQL이다.(batch fetch 크기가 달라도 같은 문장으로 본다)
+     * 정규화는 비용이 있으므로 실행할 때가 아니라 여기서 한 번만 한다.
+     */
+    public Map<String, Integer> repeated() {
+        Map<String, Integer> fingerprints = new HashMap<>();
+        executions.forEach((sql, times) -> fingerprints.merge(fingerprint(sql), times, Integer::sum));
+        return fingerprints.entrySet().stream()
+                .filter(e -> e.getValue() > 1)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    public int maxRepeat() {
+        return repeated().values().stream().mapToInt(Integer::intValue).max().orElse(count > 0 ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "statements=" + count + ", time=" + getElapsedMillis() + "ms, repeated=" + repeated();
+    }
+
+    static String fingerprint(String sql) {
+        String collapsed = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(collapsed).replaceAll("in (?)");
+    }
+}
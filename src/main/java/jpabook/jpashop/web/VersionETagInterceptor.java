@@ -0,0 +1,41 @@
+package jpabook.jpashop.web;
+
+import jpabook.jpashop.service.AggregateVersions;
+import jpabook.jpashop.service.AggregateVersions.Aggregate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 목록 조회(GET)에 애그리거트 변경 카운터로 만든 ETag를 붙이고, If-None-Match가 같으면 핸들러를 실행하지 않고 304를 돌려준다.
+ * (조회 쿼리, 직렬화 모두 하지 않는다)
+ * - 같은 URL이라도 Accept(JSON, CBOR 등)에 따라 응답이 다르므로 ETag에 Accept를 섞고 Vary: Accept를 붙인다.
+ * - Cache-Control: no-cache로 클라이언트가 매번 재검증하게 한다.
+ * - 카운터는 핸들러 실행 전에 읽는다. 실행 중에 변경이 커밋되면 ETag가 실제보다 오래된 값이 되어 다음 조회에서 새로 받을 뿐이다.
+ */
+public class VersionETagInterceptor implements HandlerInterceptor {
+    private final AggregateVersions aggregateVersions;
+    private final Aggregate[] aggregates;
+
+    public VersionETagInterceptor(AggregateVersions aggregateVersions, Aggregate... aggregates) {
+        this.aggregateVersions = aggregateVersions;
+        this.aggregates = aggregates;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        String etag = "W/\"" + aggregateVersions.version(aggregates)
+                + "-" + Integer.toHexString(accept == null ? 0 : accept.hashCode()) + "\"";
+
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        return !new ServletWebRequest(request, response).checkNotModified(etag); // 304면 false(핸들러 실행 X), 아니면 ETag 헤더만 붙는다.
+    }
+}
@@ -0,0 +1,34 @@
+package jpabook.jpashop.web;
+
+import jpabook.jpashop.service.AggregateVersions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import static jpabook.jpashop.service.AggregateVersions.Aggregate.ITEM;
+import static jpabook.jpashop.service.AggregateVersions.Aggregate.MEMBER;
+import static jpabook.jpashop.service.AggregateVersions.Aggregate.ORDER;
+
+/**
+ * 목록 조회의 ETag(조건부 GET) 설정, 목록이 보여주는 애그리거트의 변경 카운터로 만든다.
+ * 주문 목록은 회원 이름, 상품 이름도 보여주므로 셋 다 본다.
+ * 카운터가 인스턴스 메모리에 있어서(AggregateVersions) 인스턴스가 한 대일 때만 켠다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "jpashop.etag.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    private final AggregateVersions aggregateVersions;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new VersionETagInterceptor(aggregateVersions, MEMBER))
+                .addPathPatterns("/api/*/members", "/members");
+        registry.addInterceptor(new VersionETagInterceptor(aggregateVersions, ITEM))
+                .addPathPatterns("/items");
+        registry.addInterceptor(new VersionETagInterceptor(aggregateVersions, MEMBER, ITEM, ORDER))
+                .addPathPatterns("/api/*/orders", "/api/*/simple-orders", "/orders");
+    }
+}
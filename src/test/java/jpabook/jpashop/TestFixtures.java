@@ -0,0 +1,34 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 여러 테스트에서 쓰는 주문용 회원, 상품 생성
+ * 호출하는 쪽의 트랜잭션(@Transactional 또는 TransactionTemplate) 안에서 persist 한다.
+ */
+public final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    public static Member createMember(EntityManager em, String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        return member;
+    }
+
+    public static Book createBook(EntityManager em, String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        return book;
+    }
+}
@@ -0,0 +1,26 @@
+package jpabook.jpashop.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 카테고리 트리 depth는 재귀 깊이라서 범위를 벗어나면 트리를 만들기 전에 400
+class CategoryApiTest {
+
+    @Test
+    public void 트리_depth_범위밖이면_400() throws Exception{
+        // given, 검증에서 끝나므로 서비스, 스냅샷 없이
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new CategoryApiController(null, null))
+                .setControllerAdvice(new ApiExceptionHandler())
+                .build();
+
+        // when, then
+        for (String depth : new String[]{"-1", "101", "100000"}) {
+            mockMvc.perform(get("/api/categories/tree").param("depth", depth))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 변경이 없으면 304(쿼리 없이), 회원이 가입하면 다시 200
+// 가입이 커밋되어야 ETag가 바뀌므로 @Transactional을 붙이지 않는다.
+@SpringBootTest(properties = "jpashop.etag.enabled=true") // 테스트 application.yml은 main 설정을 덮으므로 따로 켠다.
+@AutoConfigureMockMvc
+class ConditionalGetTest {
+    @Autowired MockMvc mockMvc;
+    @Autowired MemberService memberService;
+
+    @Test
+    public void 변경없으면_304() throws Exception{
+        // given
+        MvcResult first = mockMvc.perform(get("/api/v2/members"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(etag);
+
+        // when, then
+        MvcResult notModified = mockMvc.perform(get("/api/v2/members").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+        Assertions.assertEquals("0", notModified.getResponse().getHeader("X-SQL-Count"));
+
+        Member member = new Member();
+        member.setName("etag-" + System.nanoTime());
+        memberService.join(member);
+
+        mockMvc.perform(get("/api/v2/members").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,26 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.search.ItemSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 검색 색인을 만들기 전(rebuild 전)의 검색은 500이 아니라 503
+class ItemSearchApiTest {
+
+    @Test
+    public void 색인_만드는중이면_503() throws Exception{
+        // given, rebuild를 부르지 않은 색인
+        ItemSearchIndex notReady = new ItemSearchIndex(null, null);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ItemApiController(null, notReady))
+                .setControllerAdvice(new ApiExceptionHandler())
+                .build();
+
+        // when, then
+        mockMvc.perform(get("/api/items/search").param("q", "jpa"))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
@@ -0,0 +1,68 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Accept 헤더로 CBOR, Smile 응답을 받고, 풀어보면 JSON 응답과 같은 값이어야 한다. 데이터는 InitDb가 넣은 주문 2건
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderApiFormatTest {
+    private static final String ORDERS = "/api/v5/orders";
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+
+    @Test
+    public void cbor응답_JSON과_같은값() throws Exception{
+        // when
+        byte[] cbor = perform(MediaType.valueOf("application/cbor"), "application/cbor");
+
+        // then
+        Assertions.assertEquals(json(), new ObjectMapper(new CBORFactory()).readTree(cbor));
+    }
+
+    @Test
+    public void smile응답_JSON과_같은값() throws Exception{
+        // when
+        byte[] smile = perform(MediaType.valueOf("application/x-jackson-smile"), "application/x-jackson-smile");
+
+        // then
+        Assertions.assertEquals(json(), new ObjectMapper(new SmileFactory()).readTree(smile));
+    }
+
+    @Test
+    public void Accept없거나_전체면_JSON() throws Exception{
+        mockMvc.perform(get(ORDERS))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        perform(MediaType.ALL, MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    private JsonNode json() throws Exception {
+        JsonNode json = objectMapper.readTree(perform(MediaType.APPLICATION_JSON, MediaType.APPLICATION_JSON_VALUE));
+        Assertions.assertTrue(json.size() >= 2);
+        return json;
+    }
+
+    private byte[] perform(MediaType accept, String expectedContentType) throws Exception {
+        MvcResult result = mockMvc.perform(get(ORDERS).accept(accept))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(expectedContentType))
+                .andReturn();
+        return result.getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,105 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.order.query.OrderFieldsQueryRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.sql.SqlCountFilter;
+import jpabook.jpashop.sql.SqlCounter;
+import jpabook.jpashop.sql.SqlStatements;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 주문 조회 API의 쿼리 수가 늘어나면(N+1) 실패한다. 데이터는 InitDb가 넣은 주문 2건(주문당 상품 2개)
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderApiSqlCountTest {
+    @Autowired MockMvc mockMvc;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired OrderFieldsQueryRepository orderFieldsQueryRepository;
+
+    @Test
+    public void 페치조인_쿼리1번() throws Exception{
+        Assertions.assertTrue(sqlCount("/api/v3/orders") <= 1);
+    }
+
+    @Test
+    public void 컬렉션_IN쿼리_쿼리2번() throws Exception{
+        Assertions.assertTrue(sqlCount("/api/v5/orders") <= 2);
+        SqlCounter.assertAtMost(2, () -> orderQueryRepository.findAllByDto_optimization());
+    }
+
+    @Test
+    public void 컬렉션_지연조회_N플러스1_검출() throws Exception{
+        // V4는 루트 1번 + 주문마다 컬렉션 1번(데이터 건수에 따라 달라지므로 실제 주문 수로 모양을 검증한다)
+        List<OrderQueryDto> orders = new ArrayList<>();
+        SqlStatements statements = SqlCounter.count(() -> orders.addAll(orderQueryRepository.findOrdersQueryDtos()));
+
+        Assertions.assertTrue(orders.size() >= 2, "N+1을 보려면 주문이 2건 이상 있어야 한다.");
+        Assertions.assertEquals(1 + orders.size(), statements.getCount());
+        Assertions.assertEquals(orders.size(), statements.maxRepeat()); // 같은 컬렉션 쿼리가 주문 수만큼 반복
+        Assertions.assertThrows(AssertionError.class, () -> SqlCounter.assertAtMost(2, statements));
+    }
+
+    @Test
+    public void 요청한_필드만_조회() throws Exception{
+        Assertions.assertEquals(1, sqlCount("/api/v7/orders?fields=orderId,orderStatus,totalPrice"));
+        SqlStatements statements = SqlCounter.count(() -> orderFieldsQueryRepository.findOrders("orderId,orderStatus,totalPrice", 0, 100));
+        Assertions.assertEquals(1, statements.getCount());
+        String sql = statements.getStatements().iterator().next().toLowerCase();
+        Assertions.assertFalse(sql.contains("join"), sql); // orders 테이블만(member, delivery 조인 X)
+        Assertions.assertFalse(sql.contains("member"), sql);
+        Assertions.assertFalse(sql.contains("delivery"), sql);
+        Assertions.assertTrue(sqlCount("/api/v7/orders?fields=orderId,orderItems.itemName") <= 2);
+
+        String body = mockMvc.perform(get("/api/v7/orders?fields=orderId,orderStatus"))
+                .andReturn().getResponse().getContentAsString();
+        Assertions.assertTrue(body.contains("orderStatus"));
+        Assertions.assertFalse(body.contains("address"));
+    }
+
+    @Test
+    public void 플랫조회_키셋페이징() throws Exception{
+        Assertions.assertTrue(sqlCount("/api/v6/orders") <= 1);
+        // 주문 id를 limit 만큼 먼저 읽고 그 범위만 조인한다.
+        Assertions.assertTrue(sqlCount("/api/v6.1/orders?limit=1") <= 2);
+    }
+
+    @Test
+    public void 비정규화테이블_조회() throws Exception{
+        Assertions.assertTrue(sqlCount("/api/v8/orders?limit=1") <= 2); // 주문 id 먼저, 그 범위의 row
+        // order_view로 조회해도 조인해서 조회한 것과 같아야 한다.
+        Assertions.assertEquals(body("/api/v6.1/orders?limit=1000"), body("/api/v8/orders?limit=1000"));
+    }
+
+    @Test
+    public void 잘못된_페이지크기는_400() throws Exception{
+        for (String uri : new String[]{"/api/v3.2/orders?limit=0", "/api/v6.1/orders?limit=-1",
+                "/api/v8/orders?limit=100000", "/api/v8/orders?after=garbage"}) {
+            mockMvc.perform(get(uri)).andExpect(status().isBadRequest());
+        }
+    }
+
+    private int sqlCount(String uri) throws Exception {
+        MvcResult result = mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn();
+        return Integer.parseInt(result.getResponse().getHeader(SqlCountFilter.HEADER));
+    }
+
+    private String body(String uri) throws Exception {
+        return mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+}
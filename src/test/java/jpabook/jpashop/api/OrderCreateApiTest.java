@@ -0,0 +1,107 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static jpabook.jpashop.TestFixtures.createBook;
+import static jpabook.jpashop.TestFixtures.createMember;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 여러 상품 주문, 대량 주문 API. 주문 라인 하나라도 재고가 부족하면 409, 아무것도 저장되지 않는다.
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional // MockMvc는 테스트 스레드에서 실행되므로 테스트 트랜잭션 안에서 주문하고 끝나면 롤백된다.
+class OrderCreateApiTest {
+    @PersistenceContext EntityManager em;
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+
+    @Test
+    public void 여러상품_주문() throws Exception{
+        // given
+        Member member = createMember(em, "api회원1");
+        Book book1 = createBook(em, "시골 JPA", 10000, 10);
+        Book book2 = createBook(em, "스프링 부트", 20000, 10);
+
+        // when
+        String body = mockMvc.perform(post("/api/v1/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(orderJson(member, book1, 2, book2, 3)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // then
+        Order order = em.find(Order.class, objectMapper.readTree(body).get("orderId").asLong());
+        Assertions.assertEquals(2, order.getOrderItems().size());
+        Assertions.assertEquals(8, book1.getStockQuantity());
+        Assertions.assertEquals(7, book2.getStockQuantity());
+    }
+
+    @Test
+    public void 대량주문() throws Exception{
+        // given
+        Member member1 = createMember(em, "api회원1");
+        Member member2 = createMember(em, "api회원2");
+        Book book1 = createBook(em, "시골 JPA", 10000, 10);
+        Book book2 = createBook(em, "스프링 부트", 20000, 10);
+
+        // when
+        String body = mockMvc.perform(post("/api/v1/orders/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orders\":[" + orderJson(member1, book1, 1, book2, 1) + "," + orderJson(member2, book1, 2, book2, 3) + "]}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // then
+        JsonNode orderIds = objectMapper.readTree(body).get("orderIds");
+        Assertions.assertEquals(2, orderIds.size());
+        Assertions.assertEquals(member2.getId(), em.find(Order.class, orderIds.get(1).asLong()).getMember().getId());
+        Assertions.assertEquals(7, book1.getStockQuantity());
+        Assertions.assertEquals(6, book2.getStockQuantity());
+    }
+
+    @Test
+    public void 한라인이라도_재고부족이면_전체거절() throws Exception{
+        // given
+        Member member = createMember(em, "api회원1");
+        Book book1 = createBook(em, "시골 JPA", 10000, 10);
+        Book book2 = createBook(em, "스프링 부트", 20000, 1);
+
+        // when, then
+        mockMvc.perform(post("/api/v1/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(orderJson(member, book1, 2, book2, 3)))
+                .andExpect(status().isConflict());
+        mockMvc.perform(post("/api/v1/orders/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"orders\":[" + orderJson(member, book1, 2, book2, 1) + "," + orderJson(member, book2, 1, book1, 1) + "]}"))
+                .andExpect(status().isConflict()); // book2가 주문서 두 장을 합쳐서 2개 필요
+
+        Assertions.assertEquals(10, book1.getStockQuantity());
+        Assertions.assertEquals(1, book2.getStockQuantity());
+        Assertions.assertEquals(0L, em.createQuery("select count(o) from Order o where o.member.id = :memberId", Long.class)
+                .setParameter("memberId", member.getId())
+                .getSingleResult());
+    }
+
+    private static String orderJson(Member member, Book item1, int count1, Book item2, int count2) {
+        return "{\"memberId\":" + member.getId() + ",\"lines\":["
+                + "{\"itemId\":" + item1.getId() + ",\"count\":" + count1 + "},"
+                + "{\"itemId\":" + item2.getId() + ",\"count\":" + count2 + "}]}";
+    }
+}
@@ -0,0 +1,92 @@
+package jpabook.jpashop.cache;
+
+import jpabook.jpashop.repository.category.CategoryNodeDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryTreeSnapshotTest {
+
+    @Test
+    public void 너비우선_자식범위() throws Exception{
+        // given, 1 - (3, 5 - (6)), 2 - (4), id 순으로 읽는다.
+        List<CategoryNodeDto> nodes = List.of(
+                new CategoryNodeDto(1L, "도서", null),
+                new CategoryNodeDto(2L, "음반", null),
+                new CategoryNodeDto(3L, "IT", 1L),
+                new CategoryNodeDto(4L, "가요", 2L),
+                new CategoryNodeDto(5L, "소설", 1L),
+                new CategoryNodeDto(6L, "SF", 5L));
+
+        // when
+        CategoryTreeSnapshot tree = CategoryTreeSnapshot.build(nodes, 1);
+
+        // then
+        assertEquals(6, tree.size());
+        assertEquals(2, tree.rootCount());
+        assertArrayEquals(new long[]{1, 2, 3, 5, 4, 6}, ids(tree)); // 루트, 1의 자식, 2의 자식, 5의 자식
+
+        int books = tree.indexOf(1L);
+        assertEquals(2, tree.childCount(books));
+        assertEquals(3L, tree.id(tree.childStart(books)));
+        assertEquals(5L, tree.id(tree.childStart(books) + 1));
+
+        int sf = tree.indexOf(6L);
+        assertEquals(2, tree.depth(sf));
+        assertEquals(5L, tree.id(tree.parent(sf)));
+        assertArrayEquals(new int[]{books, tree.indexOf(5L), sf}, tree.ancestry(sf));
+        assertEquals(-1, tree.indexOf(7L));
+    }
+
+    @Test
+    public void 부모없으면_루트_순환은_제외() throws Exception{
+        List<CategoryNodeDto> nodes = List.of(
+                new CategoryNodeDto(1L, "고아", 99L), // 부모가 없다.
+                new CategoryNodeDto(2L, "a", 3L), // 2 <-> 3 순환
+                new CategoryNodeDto(3L, "b", 2L));
+
+        CategoryTreeSnapshot tree = CategoryTreeSnapshot.build(nodes, 1);
+
+        assertEquals(1, tree.size());
+        assertEquals(1, tree.rootCount());
+        assertEquals(-1, tree.indexOf(2L));
+    }
+
+    @Test
+    public void 십만개() throws Exception{
+        // 루트 10개, 자식 10개씩 4단계(11만개)
+        List<CategoryNodeDto> nodes = new ArrayList<>();
+        List<Long> level = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < 10; i++, id++) {
+            nodes.add(new CategoryNodeDto(id, "c" + id, null));
+            level.add(id);
+        }
+        for (int depth = 1; depth < 5; depth++) {
+            List<Long> children = new ArrayList<>();
+            for (Long parent : level) {
+                for (int i = 0; i < 10; i++, id++) {
+                    nodes.add(new CategoryNodeDto(id, "c" + id, parent));
+                    children.add(id);
+                }
+            }
+            level = children;
+        }
+
+        CategoryTreeSnapshot tree = CategoryTreeSnapshot.build(nodes, 1); // 만드는 시간은 CategoryTreeBenchmark
+
+        assertEquals(nodes.size(), tree.size());
+        assertEquals(4, tree.depth(tree.indexOf(id - 1)));
+    }
+
+    private long[] ids(CategoryTreeSnapshot tree) {
+        long[] ids = new long[tree.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tree.id(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,102 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// 같은 H2 메모리 DB를 가리키는 커넥션 풀 두 개로 라우팅만 확인한다.(어느 풀의 커넥션을 쓰고 있는지)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "jpashop.datasource.replica.pool.jdbc-url=jdbc:h2:mem:routing;DB_CLOSE_DELAY=-1",
+        "jpashop.datasource.replica.pool.username=sa",
+        "jpashop.datasource.replica.lag-check-interval-ms=600000",
+        "decorator.datasource.exclude-beans=primaryDataSource,replicaDataSource,routingDataSource",
+        "spring.jpa.open-in-view=false" // 테스트 yml이 main yml을 가리므로 replica 프로파일 설정을 여기에 둔다.
+})
+@ActiveProfiles("replica")
+class ReadWriteRoutingTest {
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired ReplicationRoutingDataSource routingDataSource;
+    @Autowired @Qualifier("replicaDataSource") HikariDataSource replica;
+    @Autowired ApplicationContext applicationContext;
+
+    @AfterEach
+    public void tearDown() {
+        ReplicationRoutingDataSource.endRequest();
+        routingDataSource.setReplicaAvailable(true);
+    }
+
+    @Test
+    public void 읽기전용_트랜잭션은_replica() throws Exception{
+        Assertions.assertTrue(readUsesReplica());
+    }
+
+    @Test
+    public void 쓰기_트랜잭션은_primary() throws Exception{
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        boolean usedReplica = tx.execute(status -> {
+            memberRepository.findAll();
+            return replicaConnectionInUse();
+        });
+        Assertions.assertFalse(usedReplica);
+    }
+
+    @Test
+    public void 요청안에서_쓰기후_읽기는_primary() throws Exception{
+        ReplicationRoutingDataSource.beginRequest();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> memberRepository.findAll());
+
+        Assertions.assertFalse(readUsesReplica());
+    }
+
+    @Test
+    public void 요청안에서_읽기후_쓰기는_primary() throws Exception{
+        // OSIV가 켜져 있으면 요청의 EntityManager가 첫 읽기의 replica 커넥션을 끝까지 잡고 있는다.
+        Assertions.assertTrue(applicationContext.getBeansOfType(OpenEntityManagerInViewInterceptor.class).isEmpty());
+
+        ReplicationRoutingDataSource.beginRequest();
+        Assertions.assertTrue(readUsesReplica());
+
+        Member member = new Member();
+        member.setName("읽고 쓰기");
+        boolean usedReplica = new TransactionTemplate(transactionManager).execute(status -> {
+            memberRepository.save(member);
+            return replicaConnectionInUse();
+        });
+        Assertions.assertFalse(usedReplica);
+        Assertions.assertNotNull(member.getId());
+    }
+
+    @Test
+    public void replica_지연시_primary() throws Exception{
+        routingDataSource.setReplicaAvailable(false);
+
+        Assertions.assertFalse(readUsesReplica());
+    }
+
+    private boolean readUsesReplica() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            memberRepository.findAll();
+            return replicaConnectionInUse();
+        });
+    }
+
+    private boolean replicaConnectionInUse() {
+        return replica.getHikariPoolMXBean() != null && replica.getHikariPoolMXBean().getActiveConnections() > 0;
+    }
+}
@@ -0,0 +1,59 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import static jpabook.jpashop.TestFixtures.createBook;
+import static jpabook.jpashop.TestFixtures.createMember;
+import static org.junit.jupiter.api.Assertions.*;
+
+// 주문으로 재고가 바뀌면 그 상품의 2차 캐시만 비워야 한다.(다른 상품 캐시는 그대로)
+// 2차 캐시는 커밋된 값만 들고 있으므로 각 단계를 별도 트랜잭션으로 커밋한다.
+@SpringBootTest
+class ItemStockCacheTest {
+    @PersistenceContext
+    EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired OrderService orderService;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 주문후_캐시된_재고도_바뀐다() throws Exception{
+        // given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] ids = tx.execute(status -> {
+            Member member = createMember(em, "캐시 구매자");
+            return new Long[]{member.getId(),
+                    createBook(em, "주문할 책", 10000, 10).getId(),
+                    createBook(em, "다른 책", 10000, 10).getId()};
+        });
+        Long memberId = ids[0];
+        Long itemId = ids[1];
+        Long otherId = ids[2];
+        tx.executeWithoutResult(status -> { // 두 상품을 2차 캐시에 올린다.
+            em.find(Item.class, itemId);
+            em.find(Item.class, otherId);
+        });
+        Cache cache = emf.getCache();
+        assertTrue(cache.contains(Item.class, itemId));
+
+        // when
+        orderService.order(memberId, itemId, 3);
+
+        // then
+        assertFalse(cache.contains(Item.class, itemId)); // 바뀐 상품만 비운다.
+        assertTrue(cache.contains(Item.class, otherId));
+        assertEquals(7, tx.execute(status -> em.find(Item.class, itemId).getStockQuantity()));
+    }
+}
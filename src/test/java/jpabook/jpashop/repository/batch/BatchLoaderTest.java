@@ -0,0 +1,56 @@
+package jpabook.jpashop.repository.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 키 묶기, 청크 나누기 단위 테스트(스프링, DB 없이)
+class BatchLoaderTest {
+
+    @Test
+    public void 청크단위로_한번씩만_조회() throws Exception{
+        // given, 키 k의 값은 k*10, k*10+1 두 개
+        List<List<Long>> queries = new ArrayList<>();
+        BatchLoaders batchLoaders = new BatchLoaders(100);
+        BatchLoader<Long> loader = batchLoaders.create((keys, sink) -> {
+            queries.add(keys);
+            for (Long key : keys) {
+                sink.accept(key, key * 10);
+                sink.accept(key, key * 10 + 1);
+            }
+        }, 16);
+
+        // when
+        for (long key = 1; key <= 250; key++) {
+            loader.register(key);
+            loader.register(key); // 중복 등록은 무시
+        }
+        List<Long> first = loader.get(7);
+        List<Long> last = loader.get(250);
+
+        // then
+        assertEquals(3, queries.size()); // 100, 100, 50
+        assertEquals(List.of(70L, 71L), first);
+        assertEquals(List.of(2500L, 2501L), last);
+        assertTrue(loader.get(999).isEmpty());
+        assertEquals(4, queries.size()); // 등록 안 된 키는 그때 따로 조회
+    }
+
+    @Test
+    public void long키_맵() throws Exception{
+        LongObjectMap<String> map = new LongObjectMap<>(2);
+        for (long key = 0; key < 1000; key++) {
+            map.put(key, "v" + key);
+        }
+
+        assertEquals(1000, map.size());
+        assertEquals("v0", map.get(0));
+        assertEquals("v999", map.get(999));
+        assertNull(map.get(1000));
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(1000));
+    }
+}
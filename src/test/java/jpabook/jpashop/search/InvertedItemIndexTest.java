@@ -0,0 +1,103 @@
+package jpabook.jpashop.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedItemIndexTest {
+
+    @Test
+    public void 모든_단어_포함_점수순() throws Exception{
+        // given
+        InvertedItemIndex index = new InvertedItemIndex();
+        index.put(book(1L, "자바 ORM 표준 JPA 프로그래밍", "김영한", "978-89-6077-103-1"));
+        index.put(book(2L, "JPA", "홍길동", null));
+        index.put(book(3L, "스프링 부트", "김영한", null));
+        index.put(new ItemDocument(4L, "Movie", "JPAnic", 10000, new String[]{"감독", "jpa"}, null));
+
+        // then
+        assertEquals(List.of(2L, 1L, 4L), ids(index.search("jpa", 0, 10))); // 이름 일치 > 접두어 일치, 짧은 이름 먼저
+        assertEquals(List.of(1L), ids(index.search("김영한 jpa", 0, 10))); // 모든 단어 포함
+        assertEquals(List.of(3L, 1L), ids(index.search("김영", 0, 10))); // 접두어, 같은 점수면 짧은 이름 먼저
+        assertEquals(List.of(1L), ids(index.search("9788960771031", 0, 10))); // ISBN 숫자만
+        assertEquals(List.of(1L), ids(index.search("978-89", 0, 10)));
+        assertTrue(index.search("j", 0, 10).getItems().isEmpty()); // 한 글자는 접두어로 찾지 않는다.
+
+        ItemSearchResult page = index.search("jpa", 1, 1);
+        assertEquals(3, page.getTotal());
+        assertEquals(List.of(1L), ids(page));
+    }
+
+    @Test
+    public void 수정하면_이전_값으로_찾을수_없다() throws Exception{
+        // given
+        InvertedItemIndex index = new InvertedItemIndex();
+        index.put(book(1L, "시골 JPA", "김영한", null));
+
+        // when
+        index.put(book(1L, "도시 JPA", "김영한", null));
+
+        // then
+        assertTrue(index.search("시골", 0, 10).getItems().isEmpty());
+        assertEquals(List.of(1L), ids(index.search("도시", 0, 10)));
+        assertEquals(1, index.search("jpa", 0, 10).getTotal());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void 접두어_토큰이_많으면_상품많은_토큰부터() throws Exception{
+        // given, book0 ~ book199는 상품 1개씩, 사전 순으로 맨 뒤인 bookzz는 상품 5개
+        InvertedItemIndex index = new InvertedItemIndex();
+        for (long id = 0; id < 200; id++) {
+            index.put(book(id, "book" + id, "저자", null));
+        }
+        for (long id = 1000; id < 1005; id++) {
+            index.put(book(id, "bookzz", "저자", null));
+        }
+
+        // when
+        ItemSearchResult result = index.search("book", 0, 1000);
+
+        // then, 검색어가 넓은 접두어뿐이면 사전 순 앞쪽이 아니라 상품이 많은 토큰을 남기고, 일부만 찾았다고 알려준다.
+        assertTrue(result.isTruncated());
+        assertEquals(InvertedItemIndex.MAX_PREFIX_TERMS - 1 + 5, result.getTotal());
+        assertTrue(ids(result).containsAll(List.of(1000L, 1001L, 1002L, 1003L, 1004L)));
+        assertFalse(index.search("bookz", 0, 10).isTruncated());
+
+        // 다른 검색어 토큰이 있으면 넓은 접두어는 후보를 거르는 데만 써서 빠짐없이 찾는다.
+        ItemSearchResult filtered = index.search("저자 book", 0, 1000);
+        assertFalse(filtered.isTruncated());
+        assertEquals(205, filtered.getTotal());
+    }
+
+    @Test
+    public void 넓은_접두어는_쓰기후_다시_고른다() throws Exception{
+        // given, 넓은 접두어만 있는 검색은 고른 토큰을 캐시한다.
+        InvertedItemIndex index = new InvertedItemIndex();
+        for (long id = 0; id < 200; id++) {
+            index.put(book(id, "book" + id, "저자", null));
+        }
+        assertEquals(InvertedItemIndex.MAX_PREFIX_TERMS, index.search("book", 0, 10).getTotal());
+
+        // when, 상품이 많은 토큰이 새로 생기면
+        for (long id = 1000; id < 1005; id++) {
+            index.put(book(id, "bookzz", "저자", null));
+        }
+
+        // then, 캐시한 토큰 목록을 버리고 다시 고른다.
+        ItemSearchResult result = index.search("book", 0, 1000);
+        assertEquals(InvertedItemIndex.MAX_PREFIX_TERMS - 1 + 5, result.getTotal());
+        assertTrue(ids(result).contains(1000L));
+    }
+
+    private ItemDocument book(Long id, String name, String author, String isbn) {
+        return new ItemDocument(id, "Book", name, 10000, new String[]{author}, isbn);
+    }
+
+    private List<Long> ids(ItemSearchResult result) {
+        return result.getItems().stream().map(ItemHit::getItemId).collect(Collectors.toList());
+    }
+}
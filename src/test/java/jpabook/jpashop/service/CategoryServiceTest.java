@@ -0,0 +1,86 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.category.CategoryItemDto;
+import jpabook.jpashop.repository.category.CategorySubtreeCounts;
+import jpabook.jpashop.sql.SqlCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static jpabook.jpashop.TestFixtures.createBook;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class CategoryServiceTest {
+    @PersistenceContext
+    EntityManager em;
+    @Autowired CategoryService categoryService;
+    @Autowired CategoryRepository categoryRepository;
+
+    @Test
+    public void 하위트리_상품_조회() throws Exception{
+        // given, root - child - grandchild, 상품은 각 단계에 하나씩 + 두 카테고리에 걸친 상품 하나
+        Long root = categoryService.create("도서", null);
+        Long child = categoryService.create("IT", root);
+        Long grandchild = categoryService.create("JPA", child);
+        Long other = categoryService.create("음반", null);
+
+        Long rootItem = createItem("도서 상품권");
+        Long childItem = createItem("네트워크");
+        Long grandchildItem = createItem("시골 JPA");
+        Long otherItem = createItem("앨범");
+        categoryService.addItem(root, rootItem);
+        categoryService.addItem(child, childItem);
+        categoryService.addItem(grandchild, grandchildItem);
+        categoryService.addItem(child, grandchildItem); // 중복은 한 번만
+        categoryService.addItem(other, otherItem);
+        em.flush();
+        em.clear();
+
+        // then
+        Category rootCategory = categoryRepository.findOne(root);
+        assertEquals("/" + root + "/" + child + "/" + grandchild + "/", categoryRepository.findOne(grandchild).getPath());
+        assertEquals(List.of(rootItem, childItem, grandchildItem),
+                itemIds(SqlCounter.assertAtMost(1, () -> categoryRepository.findSubtreeItems(rootCategory, 0, 10))));
+        assertEquals(List.of(childItem), itemIds(categoryService.findSubtreeItems(root, 1, 1))); // 페이징
+        assertEquals(new CategorySubtreeCounts(root, 2, 3), categoryService.countSubtree(root));
+        assertEquals(new CategorySubtreeCounts(grandchild, 0, 1), categoryService.countSubtree(grandchild));
+    }
+
+    @Test
+    public void 옮기면_하위트리_경로도_바뀐다() throws Exception{
+        // given
+        Long root = categoryService.create("도서", null);
+        Long child = categoryService.create("IT", root);
+        Long grandchild = categoryService.create("JPA", child);
+        Long other = categoryService.create("음반", null);
+
+        // when
+        categoryService.move(child, other);
+        em.flush();
+        em.clear();
+
+        // then
+        assertEquals("/" + other + "/" + child + "/" + grandchild + "/", categoryRepository.findOne(grandchild).getPath());
+        assertEquals(0, categoryService.countSubtree(root).getDescendants());
+        assertEquals(2, categoryService.countSubtree(other).getDescendants());
+        assertThrows(IllegalArgumentException.class, () -> categoryService.move(other, grandchild)); // 자기 하위로는 못 옮긴다.
+    }
+
+    private Long createItem(String name) {
+        return createBook(em, name, 10000, 10).getId();
+    }
+
+    private List<Long> itemIds(List<CategoryItemDto> items) {
+        return items.stream().map(CategoryItemDto::getItemId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,80 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static jpabook.jpashop.TestFixtures.createBook;
+import static jpabook.jpashop.TestFixtures.createMember;
+import static org.junit.jupiter.api.Assertions.*;
+
+// 아직 DB에 반영하지 않은 예약이 있을 때 hot 여부를 바꿔도 재고보다 많이 팔리면 안 된다.
+// hot 지정/해제는 커밋 후에 카운터를 맞추므로 이 테스트는 @Transactional을 붙이지 않는다.
+@SpringBootTest
+class HotStockReservationsTest {
+    private static final int STOCK = 100;
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired HotStockReservations hotStockReservations;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 예약중_hot변경_초과판매없음() throws Exception{
+        // given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] ids = tx.execute(status -> {
+            Member member = createMember(em, "hot 구매자");
+            Book book = createBook(em, "한정판 JPA", 10000, STOCK);
+            return new Long[]{member.getId(), book.getId()};
+        });
+        Long memberId = ids[0];
+        Long itemId = ids[1];
+        int sold = 0;
+
+        // when
+        itemService.changeHot(itemId, true);
+        sold += order(memberId, itemId, 30); // 카운터에서 차감, DB에는 아직 반영 전일 수 있다.
+
+        itemService.changeHot(itemId, false); // 해제하면서 쌓인 변화량을 반영해야 한다.
+        assertFalse(hotStockReservations.isHot(itemId));
+        sold += order(memberId, itemId, 20); // DB에서 차감
+
+        itemService.changeHot(itemId, true); // 다시 hot, DB 재고(50)로 카운터를 만든다.
+        sold += order(memberId, itemId, 10);
+        itemService.changeHot(itemId, true); // 반영 전 예약이 있는 상태에서 다시 맞춰도 카운터는 그대로여야 한다.
+        assertEquals(STOCK - sold, hotStockReservations.available(itemId));
+
+        int rest = 0;
+        while (true) {
+            try {
+                orderService.order(memberId, itemId, 1);
+                rest++;
+            } catch (NotEnoughStockException e) {
+                break;
+            }
+        }
+        sold += rest;
+        itemService.changeHot(itemId, false);
+
+        // then
+        Integer remain = tx.execute(status -> em.find(Book.class, itemId).getStockQuantity());
+        assertEquals(STOCK, sold); // 재고만큼만 팔려야 한다.
+        assertEquals(0, remain); // 모든 변화량이 DB에 반영되어야 한다.
+    }
+
+    private int order(Long memberId, Long itemId, int count) {
+        orderService.order(memberId, itemId, count);
+        return count;
+    }
+}
@@ -0,0 +1,93 @@
+package jpabook.jpashop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 인메모리 재고 카운터 단위 테스트(스프링, DB 없이)
+class HotStockTest {
+
+    @Test
+    public void 동시예약_초과판매없음() throws Exception{
+        // given
+        HotStock stock = new HotStock(1L, 10_000, 8);
+        int threads = 32;
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // when, 모든 스레드가 재고가 떨어질 때까지 3개씩 예약한다.
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                while (stock.tryReserve(3)) {
+                    reserved.addAndGet(3);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // then, 샤드에 흩어진 재고가 3개 미만으로 남을 때까지 팔려야 하고, 그보다 많이 팔리면 안 된다.
+        assertEquals(10_000 - 10_000 % 3, reserved.get());
+        assertEquals(10_000 % 3, stock.available());
+        assertEquals(-reserved.get(), stock.drainDelta()); // DB에 반영할 변화량
+    }
+
+    @Test
+    public void 예약취소() throws Exception{
+        // given
+        HotStock stock = new HotStock(1L, 5, 4);
+
+        // when
+        assertTrue(stock.tryReserve(5));
+        assertFalse(stock.tryReserve(1));
+        assertTrue(stock.tryRelease(2));
+
+        // then
+        assertEquals(2, stock.available());
+        assertEquals(-3, stock.drainDelta());
+        assertEquals(0, stock.drainDelta());
+    }
+
+    @Test
+    public void 교체된카운터_예약실패() throws Exception{
+        // given
+        HotStock stock = new HotStock(1L, 10, 4);
+        assertTrue(stock.tryReserve(3));
+
+        // when
+        long carried = stock.retire();
+
+        // then, 남은 재고는 꺼내지고 이후 예약은 실패한다. 이미 받은 예약의 변화량은 남아 있다.
+        assertEquals(7, carried);
+        assertTrue(stock.isRetired());
+        assertFalse(stock.tryReserve(1));
+        assertEquals(-3, stock.drainDelta());
+    }
+
+    @Test
+    public void 교체된카운터_진행중인예약이_끝나야_버린다() throws Exception{
+        // given
+        HotStock stock = new HotStock(1L, 10, 4);
+
+        // when, then
+        assertFalse(stock.isQuiescent()); // 닫히기 전에는 버리지 않는다.
+        stock.retire();
+        assertTrue(stock.isQuiescent());
+        assertFalse(stock.tryRelease(2)); // 닫힌 카운터에는 반환되지 않는다.(새 카운터에 반환한다)
+        assertEquals(0, stock.drainDelta());
+    }
+}
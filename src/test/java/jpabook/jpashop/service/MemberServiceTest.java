@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
@@ -58,4 +59,39 @@ class MemberServiceTest {
         //then
         Assertions.assertThrows(IllegalStateException.class,() -> memberService.join(member2)); //예외가 발생해야 한다!!!
     }
-}
\ No newline at end of file
+
+    @Test
+    public void 필터에_없는_중복_유니크제약으로_예외() throws Exception{
+        //given, 서비스를 거치지 않고 넣어서 중복 확인 필터(MemberNameFilter)에는 없는 이름
+        Member existing = new Member();
+        existing.setName("kim-direct");
+        em.persist(existing);
+        em.flush();
+
+        Member member = new Member();
+        member.setName("kim-direct");
+
+        //when
+        IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, () -> memberService.join(member));
+
+        //then, 조회로 걸러지지 않고 flush에서 유니크 제약 조건 위반이 같은 예외로 바뀌어야 한다.
+        Assertions.assertTrue(e.getCause() instanceof DataIntegrityViolationException);
+    }
+
+    @Test
+    public void 이름변경_중복_예외() throws Exception{
+        //given
+        Member member1 = new Member();
+        member1.setName("kim2");
+        Member member2 = new Member();
+        member2.setName("lee2");
+        memberService.join(member1);
+        Long memberId = memberService.join(member2);
+
+        //when, then
+        Assertions.assertThrows(IllegalStateException.class, () -> memberService.update(memberId, "kim2"));
+        memberService.update(memberId, "lee2"); // 같은 이름 그대로는 중복이 아니다.
+        memberService.update(memberId, "park2");
+        Assertions.assertEquals("park2", memberRepository.findOne(memberId).getName());
+    }
+}
@@ -1,6 +1,5 @@
 package jpabook.jpashop.service;
 
-import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
@@ -18,7 +17,13 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import static jpabook.jpashop.TestFixtures.createBook;
+import static jpabook.jpashop.TestFixtures.createMember;
 import static org.junit.jupiter.api.Assertions.*;
 
 // 이 강의는 JPA 관련 동작이 원활히 되는지 확인 하는게 목표라 여기서 하는 테스트는 좋은 테스트라고는 볼 수 없다.
@@ -36,9 +41,9 @@ class OrderServiceTest {
     @Test
     public void 상품주문() throws Exception{
         // given
-        Member member = createMemberForTest();
+        Member member = createMember(em, "회원1");
 
-        Book book = createBookForTest("시골 JPA", 10000, 10);
+        Book book = createBook(em, "시골 JPA", 10000, 10);
 
         int orderCount = 2;
 
@@ -60,8 +65,8 @@ class OrderServiceTest {
     @Test
     public void 상품주문_재고수량초과() throws Exception{ // 사실 이런 테스트보다 removeStock 자체에 대한 단위테스트가 중요하다.
         // given
-        Member member = createMemberForTest();
-        Item item = createBookForTest("시골 JPA", 10000, 10);
+        Member member = createMember(em, "회원1");
+        Item item = createBook(em, "시골 JPA", 10000, 10);
 
         int orderCount = 11;
 
@@ -73,8 +78,8 @@ class OrderServiceTest {
     @Test
     public void 주문취소() throws Exception{
         // given
-        Member member = createMemberForTest();
-        Book item = createBookForTest("시골 JPA", 10000, 10);
+        Member member = createMember(em, "회원1");
+        Book item = createBook(em, "시골 JPA", 10000, 10);
 
         int orderCount = 2;
         Long orderId = orderService.order(member.getId(), item.getId(), orderCount);
@@ -89,20 +94,71 @@ class OrderServiceTest {
         assertEquals(10, item.getStockQuantity()); // 주문 취소된 상품은 그만큼 재고가 증가해야 한다.
     }
 
-    private Book createBookForTest(String name, int price, int stockQuantity) {
-        Book book = new Book();
-        book.setName(name);
-        book.setPrice(price);
-        book.setStockQuantity(stockQuantity);
-        em.persist(book);
-        return book;
+    @Test
+    public void 여러상품_주문() throws Exception{
+        // given
+        Member member = createMember(em, "회원1");
+        Book book1 = createBook(em, "시골 JPA", 10000, 10);
+        Book book2 = createBook(em, "스프링 부트", 20000, 10);
+
+        // when
+        Long orderId = orderService.order(member.getId(),
+                List.of(new OrderLine(book1.getId(), 2), new OrderLine(book2.getId(), 3)));
+
+        // then
+        Order getOrder = orderRepository.findOne(orderId);
+        assertEquals(2, getOrder.getOrderItems().size());
+        assertEquals(10000 * 2 + 20000 * 3, getOrder.getTotalPrice());
+        assertEquals(8, book1.getStockQuantity()); // 상품마다 주문 수량만큼 재고가 줄어야 한다.
+        assertEquals(7, book2.getStockQuantity());
+    }
+
+    @Test
+    public void 여러상품_주문_한라인이라도_재고부족이면_전체실패() throws Exception{
+        // given
+        Member member = createMember(em, "회원1");
+        Book book1 = createBook(em, "시골 JPA", 10000, 10);
+        Book book2 = createBook(em, "스프링 부트", 20000, 1);
+
+        // when
+        assertThrows(NotEnoughStockException.class, () -> orderService.order(member.getId(),
+                List.of(new OrderLine(book1.getId(), 2), new OrderLine(book2.getId(), 3))));
+
+        // then, 재고가 있는 라인도 차감되지 않고 주문도 남지 않는다.
+        assertEquals(10, book1.getStockQuantity());
+        assertEquals(0L, em.createQuery("select count(o) from Order o where o.member.id = :memberId", Long.class)
+                .setParameter("memberId", member.getId())
+                .getSingleResult());
     }
 
-    private Member createMemberForTest() {
-        Member member = new Member();
-        member.setName("회원1");
-        member.setAddress(new Address("서울","강가","123-123"));
-        em.persist(member);
-        return member;
+    @Test
+    public void 대량주문_flush_clear_이후에도_저장() throws Exception{
+        // given, FLUSH_SIZE(100)를 넘겨서 중간에 영속성 컨텍스트가 비워지게 한다. 비운 뒤의 묶음은 다른 회원, 상품도 참조한다.
+        Member member = createMember(em, "회원1");
+        Member member2 = createMember(em, "회원2");
+        Book item = createBook(em, "시골 JPA", 10000, 200);
+        Book item2 = createBook(em, "스프링 부트", 20000, 100);
+
+        List<OrderSheet> sheets = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            sheets.add(i < 100
+                    ? new OrderSheet(member.getId(), List.of(new OrderLine(item.getId(), 1)))
+                    : new OrderSheet(member2.getId(), List.of(new OrderLine(item.getId(), 1), new OrderLine(item2.getId(), 2))));
+        }
+
+        // when
+        List<Long> orderIds = orderService.orders(sheets);
+
+        // then
+        assertEquals(150, orderIds.size());
+        em.flush();
+        em.clear();
+        Order last = orderRepository.findOne(orderIds.get(149)); // clear 뒤에 만든 주문은 다시 읽은 회원, 상품을 참조해야 한다.
+        assertEquals(member2.getId(), last.getMember().getId());
+        assertEquals(Set.of(item.getId(), item2.getId()), last.getOrderItems().stream()
+                .map(orderItem -> orderItem.getItem().getId())
+                .collect(Collectors.toSet()));
+        assertEquals(50, em.find(Book.class, item.getId()).getStockQuantity());
+        assertEquals(0, em.find(Book.class, item2.getId()).getStockQuantity());
     }
-}
\ No newline at end of file
+}
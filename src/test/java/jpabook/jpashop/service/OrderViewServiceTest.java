@@ -0,0 +1,63 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.view.OrderViewConsistency;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static jpabook.jpashop.TestFixtures.createBook;
+import static jpabook.jpashop.TestFixtures.createMember;
+import static org.junit.jupiter.api.Assertions.*;
+
+// 주문/취소/이름 변경 후에도 order_view가 원본과 같아야 하고, 어긋나면 rebuild로 맞출 수 있어야 한다.
+@SpringBootTest
+@Transactional
+class OrderViewServiceTest {
+    @PersistenceContext
+    EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired MemberService memberService;
+    @Autowired OrderViewService orderViewService;
+
+    @Test
+    public void 원본과_정합성() throws Exception{
+        // given
+        Member member = createMember(em, "뷰-" + System.nanoTime());
+        Book book = createBook(em, "시골 JPA", 10000, 10);
+
+        // when
+        Long orderId = orderService.order(member.getId(), book.getId(), 2);
+        orderService.order(member.getId(), book.getId(), 3);
+        orderService.cancelOrder(orderId);
+        itemService.updateItem(book.getId(), "도시 JPA", 10000, 5);
+        memberService.update(member.getId(), member.getName() + "-2");
+        em.flush();
+
+        // then
+        assertTrue(orderViewService.check().isConsistent());
+    }
+
+    @Test
+    public void 어긋나면_재생성() throws Exception{
+        // given
+        em.createNativeQuery("update order_view set item_name = 'stale'").executeUpdate();
+        OrderViewConsistency broken = orderViewService.check();
+        assertFalse(broken.isConsistent());
+        assertEquals(broken.getSourceRows(), broken.getStale());
+
+        // when
+        orderViewService.rebuild();
+
+        // then
+        OrderViewConsistency rebuilt = orderViewService.check();
+        assertTrue(rebuilt.isConsistent());
+        assertEquals(rebuilt.getSourceRows(), rebuilt.getViewRows());
+    }
+}
@@ -0,0 +1,69 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.sales.ItemDailySalesDto;
+import jpabook.jpashop.repository.sales.OrderStatusCountDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.List;
+
+import static jpabook.jpashop.TestFixtures.createBook;
+import static jpabook.jpashop.TestFixtures.createMember;
+import static org.junit.jupiter.api.Assertions.*;
+
+// 주문/취소할 때 갱신한 집계와 주문 원본으로 다시 만든(rebuild) 집계가 같아야 한다.
+@SpringBootTest
+@Transactional
+class SalesAggregateTest {
+    @PersistenceContext
+    EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired SalesReportService salesReportService;
+
+    @Test
+    public void 주문_취소_집계() throws Exception{
+        // given
+        Member member = createMember(em, "집계-" + System.nanoTime());
+        Book book = createBook(em, "시골 JPA", 10000, 10);
+        LocalDate today = LocalDate.now();
+        long ordered = statusCount(OrderStatus.ORDER);
+        long canceled = statusCount(OrderStatus.CANCEL);
+
+        // when
+        Long orderId = orderService.order(member.getId(), book.getId(), 2);
+        orderService.order(member.getId(), book.getId(), 3);
+        orderService.cancelOrder(orderId);
+
+        // then
+        ItemDailySalesDto sales = itemSales(today, book.getId());
+        assertEquals(30000, sales.getRevenue()); // 취소한 주문은 빠진다.
+        assertEquals(3, sales.getUnits());
+        assertEquals(ordered + 1, statusCount(OrderStatus.ORDER));
+        assertEquals(canceled + 1, statusCount(OrderStatus.CANCEL));
+
+        salesReportService.rebuild();
+        assertEquals(sales, itemSales(today, book.getId())); // 원본으로 다시 만들어도 같다.
+        assertEquals(ordered + 1, statusCount(OrderStatus.ORDER));
+    }
+
+    private ItemDailySalesDto itemSales(LocalDate date, Long itemId) {
+        List<ItemDailySalesDto> sales = salesReportService.findItemDailySales(date, date, itemId);
+        assertEquals(1, sales.size()); // slot은 합쳐서 하루 한 줄
+        return sales.get(0);
+    }
+
+    private long statusCount(OrderStatus status) {
+        return salesReportService.findOrderStatusCounts().stream()
+                .filter(c -> c.getStatus() == status)
+                .mapToLong(OrderStatusCountDto::getOrderCount)
+                .sum();
+    }
+}
@@ -0,0 +1,85 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static jpabook.jpashop.TestFixtures.createBook;
+import static jpabook.jpashop.TestFixtures.createMember;
+import static org.junit.jupiter.api.Assertions.*;
+
+// 여러 스레드가 동시에 같은 상품을 주문해도 재고보다 많이 팔리면 안 된다.
+// 각 주문이 별도 트랜잭션으로 커밋되어야 하므로 이 테스트는 @Transactional을 붙이지 않는다.
+// 처리량은 StockContentionBenchmark(JMH)로 잰다.
+@SpringBootTest
+class StockConcurrencyTest {
+    private static final int STOCK = 500;
+
+    @PersistenceContext
+    EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 8, 64})
+    public void 동시주문_초과판매없음(int buyers) throws Exception{
+        // given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] ids = tx.execute(status -> {
+            Member member = createMember(em, "구매자-" + buyers + "-" + System.nanoTime());
+            Book book = createBook(em, "한정판 JPA", 10000, STOCK);
+            return new Long[]{member.getId(), book.getId()};
+        });
+        Long memberId = ids[0];
+        Long itemId = ids[1];
+
+        // when, 재고가 떨어질 때까지 모든 구매자가 1개씩 계속 주문한다.
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(buyers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                while (true) {
+                    try {
+                        orderService.order(memberId, itemId, 1);
+                        sold.incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        rejected.incrementAndGet();
+                        return null;
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES); // 재고 부족 이외의 예외가 있으면 여기서 실패한다.
+        }
+        executor.shutdown();
+
+        // then
+        Integer remain = tx.execute(status -> em.find(Book.class, itemId).getStockQuantity());
+        assertEquals(STOCK, sold.get()); // 재고만큼만 팔려야 한다.
+        assertEquals(0, remain); // 재고는 음수가 되거나 남으면 안 된다.
+        assertEquals(buyers, rejected.get());
+    }
+}
@@ -0,0 +1,108 @@
+package jpabook.jpashop.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// SQL 로그 링 버퍼 단위 테스트(스프링 없이)
+class SqlLogRingBufferTest {
+
+    @Test
+    public void 동시에_넣고_하나가_꺼내면_유실중복없음() throws Exception{
+        // given, 용량 안에서는 버려지지 않는다.
+        int producers = 4;
+        int perProducer = 1000;
+        SqlLogRingBuffer buffer = new SqlLogRingBuffer(producers * perProducer);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+
+        // when, 소비자(현재 스레드)가 꺼내는 동안 생산자들이 넣는다.
+        for (int p = 0; p < producers; p++) {
+            String producer = "p" + p;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    assertTrue(buffer.offer(entry(producer, i)));
+                }
+            });
+        }
+        start.countDown();
+        List<SqlLogEntry> polled = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (polled.size() < producers * perProducer && System.nanoTime() < deadline) {
+            SqlLogEntry entry = buffer.poll();
+            if (entry != null) {
+                polled.add(entry);
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // then, 전부 한 번씩 꺼내지고 생산자별로는 넣은 순서대로 나온다.
+        assertEquals(producers * perProducer, polled.size());
+        assertNull(buffer.poll());
+        Set<String> distinct = new HashSet<>();
+        int[] next = new int[producers];
+        for (SqlLogEntry entry : polled) {
+            assertTrue(distinct.add(entry.thread + ":" + entry.sql));
+            int producer = Integer.parseInt(entry.thread.substring(1));
+            assertEquals(String.valueOf(next[producer]++), entry.sql);
+        }
+    }
+
+    @Test
+    public void 가득차면_버린다() throws Exception{
+        // given
+        SqlLogRingBuffer buffer = new SqlLogRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(entry("p0", i)));
+        }
+
+        // when, then
+        int dropped = 0;
+        for (int i = 4; i < 10; i++) {
+            if (!buffer.offer(entry("p0", i))) {
+                dropped++;
+            }
+        }
+        assertEquals(6, dropped);
+        assertEquals("0", buffer.poll().sql); // 버린 뒤에도 먼저 넣은 것부터 나온다.
+        assertTrue(buffer.offer(entry("p0", 10))); // 꺼낸 만큼 다시 들어간다.
+    }
+
+    @Test
+    public void 여러바퀴_돌아도_순서유지() throws Exception{
+        // given
+        SqlLogRingBuffer buffer = new SqlLogRingBuffer(4);
+
+        // when, then, 슬롯 수보다 많이 넣고 꺼내서 인덱스가 여러 번 돈다.
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(buffer.offer(entry("p0", round * 3 + i)));
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(String.valueOf(next++), buffer.poll().sql);
+            }
+            assertNull(buffer.poll());
+        }
+    }
+
+    private static SqlLogEntry entry(String producer, int sequence) {
+        return new SqlLogEntry(System.currentTimeMillis(), producer, String.valueOf(sequence), 0, false, null);
+    }
+}